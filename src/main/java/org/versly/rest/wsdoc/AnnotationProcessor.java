@@ -20,7 +20,9 @@ import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 import static org.apache.commons.lang3.StringUtils.join;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
@@ -38,6 +40,7 @@ import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
@@ -73,6 +76,8 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
 import org.springframework.web.servlet.ModelAndView;
+import org.versly.rest.wsdoc.impl.BoundedCache;
+import org.versly.rest.wsdoc.impl.IntermediateFormat;
 import org.versly.rest.wsdoc.impl.JaxRSRestImplementationSupport;
 import org.versly.rest.wsdoc.impl.JsonArray;
 import org.versly.rest.wsdoc.impl.JsonDict;
@@ -80,7 +85,9 @@ import org.versly.rest.wsdoc.impl.JsonObject;
 import org.versly.rest.wsdoc.impl.JsonPrimitive;
 import org.versly.rest.wsdoc.impl.JsonRecursiveObject;
 import org.versly.rest.wsdoc.impl.JsonType;
+import org.versly.rest.wsdoc.impl.ProcessingLevel;
 import org.versly.rest.wsdoc.impl.RestDocumentation;
+import org.versly.rest.wsdoc.impl.RestDocumentationReader;
 import org.versly.rest.wsdoc.impl.SpringMVC43RestImplementationSupport;
 import org.versly.rest.wsdoc.impl.Utils;
 
@@ -107,20 +114,103 @@ import com.fasterxml.jackson.module.jsonSchema.factories.SchemaFactoryWrapper;
                            "org.springframework.web.bind.annotation.DeleteMapping", "org.springframework.web.bind.annotation.PutMapping",
                            "javax.ws.rs.Path", "javax.ws.rs.GET", "javax.ws.rs.PUT", "javax.ws.rs.POST", "javax.ws.rs.DELETE", "javax.ws.rs.HEAD", "javax.ws.rs.OPTIONS"})
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
+@SupportedOptions({AnnotationProcessor.LEVEL_OPTION, AnnotationProcessor.CACHE_SIZE_OPTION, AnnotationProcessor.FORMAT_OPTION,
+                   AnnotationProcessor.COMPRESS_OPTION})
 public class AnnotationProcessor extends AbstractProcessor {
 
+    /**
+     * Processor option (<code>-Awsdoc.level=...</code>) selecting how much information to gather: one of
+     * <code>endpoints</code>, <code>types</code> or <code>full</code> (the default).
+     */
+    public static final String LEVEL_OPTION = "wsdoc.level";
+
+    /**
+     * Processor option (<code>-Awsdoc.cacheSize=...</code>) limiting the number of entries in each of the
+     * processor's type caches.
+     */
+    public static final String CACHE_SIZE_OPTION = "wsdoc.cacheSize";
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+
+    /**
+     * Processor option (<code>-Awsdoc.format=...</code>) selecting the format of the intermediate file: one of
+     * <code>binary</code> (the default), <code>json</code> or <code>smile</code>.
+     */
+    public static final String FORMAT_OPTION = "wsdoc.format";
+
+    /**
+     * Processor option (<code>-Awsdoc.compress=true|false</code>) controlling whether the binary intermediate file
+     * is compressed. By default, an existing file's compression, as given by its header, is kept.
+     */
+    public static final String COMPRESS_OPTION = "wsdoc.compress";
+
     private RestDocumentation _docs = new RestDocumentation();
     private boolean _isComplete = false;
-    private Map<TypeMirror, JsonType> _memoizedTypeMirrors = new HashMap<TypeMirror, JsonType>();
-    private Map<DeclaredType, JsonType> _memoizedDeclaredTypes = new HashMap<DeclaredType, JsonType>();
+    private BoundedCache<TypeMirror, JsonType> _memoizedTypeMirrors;
+    private BoundedCache<DeclaredType, JsonType> _memoizedDeclaredTypes;
     private ProcessingEnvironment _processingEnv;
     private Types _typeUtils;
+    private ClassLoader _schemaClassLoader;
+    private ProcessingLevel _level = ProcessingLevel.FULL;
+    private IntermediateFormat _format = IntermediateFormat.BINARY;
+    private Boolean _compress;
 
     @Override
     public void init(ProcessingEnvironment processingEnv) {
         super.init(processingEnv);
         _processingEnv = processingEnv;
         _typeUtils = _processingEnv.getTypeUtils();
+
+        String level = processingEnv.getOptions().get(LEVEL_OPTION);
+        if (level != null) {
+            try {
+                _level = ProcessingLevel.fromString(level);
+            } catch (IllegalArgumentException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        e.getMessage() + "; gathering full documentation");
+            }
+        }
+        _docs.setProcessingLevel(_level);
+
+        String format = processingEnv.getOptions().get(FORMAT_OPTION);
+        if (format != null) {
+            try {
+                _format = IntermediateFormat.fromString(format);
+            } catch (IllegalArgumentException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        e.getMessage() + "; writing the binary format");
+            }
+        }
+
+        String compress = processingEnv.getOptions().get(COMPRESS_OPTION);
+        if (compress != null) {
+            if ("true".equalsIgnoreCase(compress.trim()) || "false".equalsIgnoreCase(compress.trim())) {
+                _compress = Boolean.valueOf(compress.trim());
+            } else {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, String.format(
+                        "invalid %s '%s'; expected true or false", COMPRESS_OPTION, compress));
+            }
+        }
+        if (Boolean.TRUE.equals(_compress) && _format != IntermediateFormat.BINARY) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, String.format(
+                    "only the binary format can be compressed; writing uncompressed %s", _format.name().toLowerCase()));
+            _compress = Boolean.FALSE;
+        }
+
+        int cacheSize = DEFAULT_CACHE_SIZE;
+        String cacheSizeOption = processingEnv.getOptions().get(CACHE_SIZE_OPTION);
+        if (cacheSizeOption != null) {
+            try {
+                cacheSize = Integer.parseInt(cacheSizeOption.trim());
+                if (cacheSize <= 0)
+                    throw new NumberFormatException();
+            } catch (NumberFormatException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, String.format(
+                        "invalid %s '%s'; using %d", CACHE_SIZE_OPTION, cacheSizeOption, DEFAULT_CACHE_SIZE));
+                cacheSize = DEFAULT_CACHE_SIZE;
+            }
+        }
+        _memoizedTypeMirrors = new BoundedCache<TypeMirror, JsonType>(cacheSize);
+        _memoizedDeclaredTypes = new BoundedCache<DeclaredType, JsonType>(cacheSize);
     }
 
     @Override
@@ -141,11 +231,14 @@ public class AnnotationProcessor extends AbstractProcessor {
             try {
                 FileObject file = getOutputFile();
                 boolean exists = new File(file.getName()).exists();
+                boolean compress = _compress != null ? _compress
+                        : _format == IntermediateFormat.BINARY && exists && isCompressed(new File(file.getName()));
                 fileOutput = file.openOutputStream();
-                _docs.toStream(fileOutput);
+                _docs.toStream(fileOutput, _format, compress);
                 processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
-                        String.format("Wrote REST docs for %s apis to %s file at %s",
-                                _docs.getApis().size(), exists ? "existing" : "new", file.getName()));
+                        String.format("Wrote REST docs for %s apis (%s level) to %s file at %s",
+                                _docs.getApis().size(), _level.name().toLowerCase(),
+                                exists ? "existing" : "new", file.getName()));
             } catch (Exception e) {
                 throw new RuntimeException(e); // TODO wrap in something nicer
             } finally {
@@ -159,9 +252,34 @@ public class AnnotationProcessor extends AbstractProcessor {
             }
         }
         _isComplete = true;
+        releaseCaches();
         return true;
     }
 
+    /**
+     * Report the caches' peak sizes and drop their contents, so that the compiler's type information is not
+     * kept reachable by this processor for the rest of the compilation.
+     */
+    private void releaseCaches() {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, String.format(
+                "wsdoc type caches: peak %d (type mirrors) and %d (declared types) of %d entries, %d evictions, "
+                        + "%d halvings on a nearly full heap",
+                _memoizedTypeMirrors.getPeakEntries(), _memoizedDeclaredTypes.getPeakEntries(),
+                _memoizedTypeMirrors.getMaxEntries(),
+                _memoizedTypeMirrors.getEvictions() + _memoizedDeclaredTypes.getEvictions(),
+                _memoizedTypeMirrors.getMemoryTrims() + _memoizedDeclaredTypes.getMemoryTrims()));
+        _memoizedTypeMirrors.clear();
+        _memoizedDeclaredTypes.clear();
+    }
+
+    /**
+     * Sets the class loader used to load DTO classes for JSON schema generation. By default, the processor's
+     * own class loader is used, which only sees classes that are on the annotation processor path.
+     */
+    void setSchemaClassLoader(ClassLoader schemaClassLoader) {
+        _schemaClassLoader = schemaClassLoader;
+    }
+
     private void processElements(RoundEnvironment roundEnvironment,
                                  Collection<String> processedPackageNames,
                                  RestImplementationSupport implementationSupport) {
@@ -181,6 +299,31 @@ public class AnnotationProcessor extends AbstractProcessor {
         processedPackageNames.add(processingEnv.getElementUtils().getPackageOf(e).getQualifiedName().toString());
     }
 
+    /**
+     * Whether <code>file</code> is a compressed binary intermediate file; unreadable files are not.
+     */
+    private static boolean isCompressed(File file) {
+        byte[] header = new byte[16];
+        int length = 0;
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            for (int n; length < header.length && (n = in.read(header, length, header.length - length)) >= 0; )
+                length += n;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // ignored
+                }
+            }
+        }
+        return RestDocumentationReader.isCompressed(header, length);
+    }
+
     private FileObject getOutputFile() throws IOException {
         return this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", Utils.SERIALIZED_RESOURCE_LOCATION);
     }
@@ -290,7 +433,7 @@ public class AnnotationProcessor extends AbstractProcessor {
                 TypeMirror type = getTypeFromAnnotation(executableElement);
 
                 // add method's traits as included with overall API traits (used in RAML for uniform documentation)
-                api.getTraits().addAll(method.getTraits());
+                api.addTraits(method.getTraits());
                 
                 // set path and query parameter information on method
                 buildParameterData(executableElement, method, implementationSupport);
@@ -370,9 +513,13 @@ public class AnnotationProcessor extends AbstractProcessor {
     }
 
     private void buildRequestBody(VariableElement var, RestDocumentation.RestApi.Resource.Method doc) {
+        if (!_level.includes(ProcessingLevel.TYPES))
+            return;
         doc.setRequestBody(jsonTypeFromTypeMirror(var.asType(), new HashSet<String>()));
-        doc.setRequestSchema(jsonSchemaFromTypeMirror(var.asType()));
-        doc.setRequestExample(exampleFromJsonType(doc.getRequestBody()));
+        if (_level.includes(ProcessingLevel.FULL)) {
+            doc.setRequestSchema(jsonSchemaFromTypeMirror(var.asType()));
+            doc.setRequestExample(exampleFromJsonType(doc.getRequestBody()));
+        }
     }
 
     private void buildPathVariables(ExecutableElement executableElement, RestDocumentation.RestApi.Resource.Method doc,
@@ -512,10 +659,14 @@ public class AnnotationProcessor extends AbstractProcessor {
     }
 
     private void buildResponseFormat(TypeMirror type, RestDocumentation.RestApi.Resource.Method doc) {
+        if (!_level.includes(ProcessingLevel.TYPES))
+            return;
         type = convertAsyncResponseTypes(type);
         doc.setResponseBody(jsonTypeFromTypeMirror(type, new HashSet<String>()));
-        doc.setResponseSchema(jsonSchemaFromTypeMirror(type));
-        doc.setResponseExample(exampleFromJsonType(doc.getResponseBody()));
+        if (_level.includes(ProcessingLevel.FULL)) {
+            doc.setResponseSchema(jsonSchemaFromTypeMirror(type));
+            doc.setResponseExample(exampleFromJsonType(doc.getResponseBody()));
+        }
     }
 
     private TypeMirror convertAsyncResponseTypes(TypeMirror type) {
@@ -666,6 +817,9 @@ public class AnnotationProcessor extends AbstractProcessor {
 
             JsonObject json = new JsonObject();
             buildTypeContents(json, element);
+            // name the type so that its uses can share one definition; wrappers like ModelAndView have no fields
+            if (!json.getFields().isEmpty())
+                json.setTypeName(declaredType.toString());
             return json; // we've already added to the cache; short-circuit to handle recursion
         }
 
@@ -939,7 +1093,9 @@ public class AnnotationProcessor extends AbstractProcessor {
         StringBuffer erasure = new StringBuffer(_typeUtils.erasure(type).toString());
         for (boolean done = false; !done; ) {
             try {
-                dtoClass = Class.forName(erasure.toString());
+                dtoClass = _schemaClassLoader == null
+                        ? Class.forName(erasure.toString())
+                        : Class.forName(erasure.toString(), true, _schemaClassLoader);
                 done = true;
             } catch (ClassNotFoundException e) {
                 if (erasure.lastIndexOf(".") != -1) {
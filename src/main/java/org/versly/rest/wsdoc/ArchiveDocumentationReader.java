@@ -0,0 +1,121 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc;
+
+import org.versly.rest.wsdoc.impl.MappedRestDocumentationReader;
+import org.versly.rest.wsdoc.impl.RestDocumentation;
+import org.versly.rest.wsdoc.impl.Utils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads the intermediate documentation files in an archive: at the root of a jar, in a WAR's
+ * <code>WEB-INF/classes</code>, and in the archives nested in it at any depth, such as a WAR's
+ * <code>WEB-INF/lib</code> jars or an EAR's WARs. Nested archives are streamed through rather than extracted, and
+ * the entries of the outermost archive that can't hold documentation are not read at all.
+ */
+class ArchiveDocumentationReader {
+    private static final String WAR_CLASSES = "WEB-INF/classes/";
+
+    private final Collection<String> _apiIdentifiers;
+    private final Collection<String> _scopes;
+
+    ArchiveDocumentationReader(Collection<String> apiIdentifiers, Collection<String> scopes) {
+        _apiIdentifiers = apiIdentifiers;
+        _scopes = scopes;
+    }
+
+    /**
+     * Whether the file with the given name is an archive that may hold documentation.
+     */
+    static boolean isArchive(String name) {
+        String lowerCaseName = name.toLowerCase();
+        return lowerCaseName.endsWith(".jar") || lowerCaseName.endsWith(".war") || lowerCaseName.endsWith(".ear");
+    }
+
+    private static boolean isDocumentation(String name) {
+        return name.equals(Utils.SERIALIZED_RESOURCE_LOCATION)
+                || name.equals(WAR_CLASSES + Utils.SERIALIZED_RESOURCE_LOCATION);
+    }
+
+    /**
+     * The documentation in <code>archive</code> and the archives nested in it, in the order of their entries.
+     */
+    List<RestDocumentation> read(File archive) throws IOException, ClassNotFoundException {
+        List<RestDocumentation> docs = new ArrayList<RestDocumentation>();
+        ZipFile zip = new ZipFile(archive);
+        try {
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory())
+                    continue;
+                if (isDocumentation(entry.getName())) {
+                    docs.add(readDocumentation(zip.getInputStream(entry)));
+                } else if (isArchive(entry.getName())) {
+                    InputStream in = new BufferedInputStream(zip.getInputStream(entry));
+                    try {
+                        readNested(in, docs);
+                    } finally {
+                        in.close();
+                    }
+                }
+            }
+        } finally {
+            zip.close();
+        }
+        return docs;
+    }
+
+    /**
+     * Stream through the archive in <code>in</code>, which is left open.
+     */
+    private void readNested(InputStream in, List<RestDocumentation> docs) throws IOException, ClassNotFoundException {
+        ZipInputStream zip = new ZipInputStream(new FilterInputStream(in) {
+            @Override
+            public void close() {
+                // the enclosing stream is closed by its owner
+            }
+        });
+        try {
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+                if (entry.isDirectory())
+                    continue;
+                if (isDocumentation(entry.getName()))
+                    docs.add(readDocumentation(zip));
+                else if (isArchive(entry.getName()))
+                    readNested(zip, docs);
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    private RestDocumentation readDocumentation(InputStream in) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read; (read = in.read(buffer)) >= 0; )
+            bytes.write(buffer, 0, read);
+        return MappedRestDocumentationReader.read(bytes.toByteArray(), _apiIdentifiers, _scopes);
+    }
+}
@@ -20,21 +20,32 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.internal.Lists;
 import freemarker.template.Configuration;
-import freemarker.template.DefaultObjectWrapper;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
+import org.versly.rest.wsdoc.impl.DocumentationObjectWrapper;
+import org.versly.rest.wsdoc.impl.FragmentCache;
+import org.versly.rest.wsdoc.impl.MappedRestDocumentationReader;
+import org.versly.rest.wsdoc.impl.OutputFormat;
+import org.versly.rest.wsdoc.impl.ProcessingLevel;
 import org.versly.rest.wsdoc.impl.RestDocumentation;
 import org.versly.rest.wsdoc.impl.Utils;
 
 import java.io.*;
 import java.util.*;
-import java.util.jar.JarFile;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
 
 public class RestDocAssembler {
     private final String _outputFileName;
-    private final String _outputTemplate;
+    private final List<OutputFormat> _outputFormats;
+    private final Configuration _configuration = newConfiguration();
+    private ProcessingLevel _requiredLevel;
+    private Collection<String> _apiIdentifiers;
+    private int _threads = Runtime.getRuntime().availableProcessors();
 
     public static void main(String... args)
         throws IOException, ClassNotFoundException, TemplateException {
@@ -45,114 +56,248 @@ public class RestDocAssembler {
         Utils.addTemplateValue(DocumentationRestApi.TITLE_TEMPLATE, arguments.titleTemplateValue);
         Utils.addTemplateValue(DocumentationRestApi.VERSION_TEMPLATE, arguments.versionTemplateValue);
 
-        List<RestDocumentation> docs = new LinkedList<RestDocumentation>();
-        for (String input : arguments.inputs) {
-            File inputFile = new File(input);
-            if (inputFile.isDirectory()) {
-                System.err.println("adding web service docs from classes directory " + input);
-                File resourceFile = new File(inputFile, Utils.SERIALIZED_RESOURCE_LOCATION);
-                docs.add(RestDocumentation.fromStream(new FileInputStream(resourceFile))); // TODO resource management
-            } else if (input.toLowerCase().endsWith(".war")) {
-                System.err.println("adding web service docs from WAR " + input);
-                JarFile jar = new JarFile(input);
-                ZipEntry e = jar.getEntry("WEB-INF/classes/" + Utils.SERIALIZED_RESOURCE_LOCATION);
-                docs.add(RestDocumentation.fromStream(jar.getInputStream(e)));
-                jar.close();
-            } else {
-                System.err.println("adding web service docs from serialized input " + input);
-                docs.add(RestDocumentation.fromStream(new FileInputStream(inputFile))); // TODO resource management
-            }
-        }
+        // only the sections of indexed inputs for the selected APIs and scopes are read
+        Collection<String> apiIdentifiers = arguments.apis.isEmpty() ? null : arguments.apis;
+        List<String> scopes = arguments.scopes.isEmpty() ? Collections.singletonList("all") : arguments.scopes;
+        RestDocAssembler assembler = new RestDocAssembler(arguments.outputFileName,
+                arguments.outputFormats.isEmpty() ? Collections.singletonList("html") : arguments.outputFormats);
+        assembler.setThreads(arguments.threads);
+        List<RestDocumentation> docs = assembler.readDocumentation(arguments.inputs, apiIdentifiers, scopes);
 
         if (docs.size() > 0) {
             List<Pattern> excludePatterns = new ArrayList<Pattern>();
             for (String pattern : arguments.excludes)
                 excludePatterns.add(Pattern.compile(pattern));
-            new RestDocAssembler(arguments.outputFileName, arguments.outputFormat)
-                    .writeDocumentation(docs, excludePatterns, arguments.scope);
+            if (arguments.requiredLevel != null)
+                assembler.setRequiredLevel(ProcessingLevel.fromString(arguments.requiredLevel));
+            assembler.setApiIdentifiers(apiIdentifiers);
+            assembler.writeDocumentation(docs, excludePatterns, scopes);
+        }
+    }
+
+    /**
+     * Read the REST docs of each input (a classes directory, an archive or an intermediate file), concurrently,
+     * with only the sections for the given APIs and scopes. Archives may hold several docs, e.g. in an EAR's WARs
+     * or a WAR's <code>WEB-INF/lib</code> jars. The docs are returned in the order of the inputs, and of the
+     * entries within each archive.
+     */
+    List<RestDocumentation> readDocumentation(List<String> inputs, final Collection<String> apiIdentifiers,
+                                              final Collection<String> scopes)
+        throws IOException, ClassNotFoundException {
+        List<Future<List<RestDocumentation>>> results = new ArrayList<Future<List<RestDocumentation>>>();
+        ExecutorService executor = newExecutor(inputs.size());
+        try {
+            for (final String input : inputs) {
+                final File inputFile = new File(input);
+                if (inputFile.isDirectory()) {
+                    System.err.println("adding web service docs from classes directory " + input);
+                    results.add(executor.submit(() -> Collections.singletonList(MappedRestDocumentationReader.read(
+                            new File(inputFile, Utils.SERIALIZED_RESOURCE_LOCATION), apiIdentifiers, scopes))));
+                } else if (ArchiveDocumentationReader.isArchive(input)) {
+                    System.err.println("adding web service docs from archive " + input);
+                    results.add(executor.submit(
+                            () -> new ArchiveDocumentationReader(apiIdentifiers, scopes).read(inputFile)));
+                } else {
+                    System.err.println("adding web service docs from serialized input " + input);
+                    results.add(executor.submit(() -> Collections.singletonList(
+                            MappedRestDocumentationReader.read(inputFile, apiIdentifiers, scopes))));
+                }
+            }
+
+            List<RestDocumentation> docs = new ArrayList<RestDocumentation>();
+            for (int i = 0; i < results.size(); i++) {
+                List<RestDocumentation> inputDocs = getResult(results.get(i));
+                if (inputDocs.isEmpty())
+                    System.err.println("warning: no web service docs found in " + inputs.get(i));
+                docs.addAll(inputDocs);
+            }
+            return docs;
+        } finally {
+            executor.shutdownNow();
         }
     }
 
     public RestDocAssembler(String outputFileName, String outputFormat) {
+        this(outputFileName, Collections.singletonList(outputFormat));
+    }
 
+    /**
+     * Write the documentation in each of <code>outputFormats</code>, all from the same inputs. With more than one
+     * format, the extension of <code>outputFileName</code> is replaced by each format's.
+     */
+    public RestDocAssembler(String outputFileName, List<String> outputFormats) {
         _outputFileName = outputFileName;
-        if (outputFormat.equalsIgnoreCase("raml"))
-        {
-            _outputTemplate = "RamlDocumentation.ftl";
-        }
-        else
-        {
-            _outputTemplate = "RestDocumentation.ftl";
+        _outputFormats = new ArrayList<OutputFormat>();
+        for (String outputFormat : outputFormats) {
+            OutputFormat format = OutputFormat.fromString(outputFormat);
+            if (_outputFormats.contains(format))
+                continue;
+            for (OutputFormat other : _outputFormats) {
+                if (other.getExtension().equals(format.getExtension()))
+                    throw new IllegalArgumentException(String.format(
+                            "output formats %s and %s would both write .%s files", other, format,
+                            format.getExtension()));
+            }
+            _outputFormats.add(format);
         }
     }
 
+    /**
+     * The FreeMarker configuration for the output templates. It is shared by all the outputs being rendered,
+     * which is safe since it isn't changed once set up, and lets them share its cache of parsed templates.
+     */
+    private static Configuration newConfiguration() {
+        Configuration conf = new Configuration();
+        conf.setClassForTemplateLoading(RestDocAssembler.class, "");
+        conf.setObjectWrapper(new DocumentationObjectWrapper());
+        return conf;
+    }
+
     public RestDocAssembler(String outputFileName) {
         this(outputFileName, "html");
     }
 
     /**
-     * combine APIs from the REST docs into one map, merging those APIs with matching identifiers
+     * The number of inputs to read, and of merges to run, concurrently; by default, the number of processors.
      */
-    private Collection<RestDocumentation.RestApi> mergeApis(List<RestDocumentation> docs) {
-        Map<String,RestDocumentation.RestApi> aggregatedApis = new LinkedHashMap<String,RestDocumentation.RestApi>();
+    public void setThreads(int threads) {
+        _threads = threads;
+    }
+
+    /**
+     * Refuse to generate documentation from inputs that were gathered at a lower processing level than
+     * <code>requiredLevel</code>. By default, such inputs are documented with whatever information they have.
+     */
+    public void setRequiredLevel(ProcessingLevel requiredLevel) {
+        _requiredLevel = requiredLevel;
+    }
+
+    /**
+     * Only document the APIs with the given identifiers, or all APIs if <code>null</code>.
+     */
+    public void setApiIdentifiers(Collection<String> apiIdentifiers) {
+        _apiIdentifiers = apiIdentifiers;
+    }
+
+    /**
+     * Check that the inputs were gathered in enough detail for the output formats: the HTML output shows the
+     * request and response bodies, and the RAML output additionally includes their schemas and examples.
+     */
+    private void checkProcessingLevels(List<RestDocumentation> docs) {
+        ProcessingLevel level = ProcessingLevel.FULL;
         for (RestDocumentation doc : docs) {
-            for (RestDocumentation.RestApi api : doc.getApis()) {
-                if (!aggregatedApis.containsKey(api.getIdentifier())) {
-                    aggregatedApis.put(api.getIdentifier(), api);
-                }
-                else {
-                    aggregatedApis.get(api.getIdentifier()).merge(api);
+            if (!doc.getProcessingLevel().includes(level))
+                level = doc.getProcessingLevel();
+        }
+
+        if (_requiredLevel != null && !level.includes(_requiredLevel))
+            throw new IllegalStateException(String.format(
+                    "REST docs were gathered at the %s processing level, but the %s level is required",
+                    level.name().toLowerCase(), _requiredLevel.name().toLowerCase()));
+
+        ProcessingLevel formatLevel = ProcessingLevel.ENDPOINTS;
+        for (OutputFormat format : _outputFormats) {
+            if (!formatLevel.includes(format.getProcessingLevel()))
+                formatLevel = format.getProcessingLevel();
+        }
+        if (!level.includes(formatLevel))
+            System.err.printf("warning: REST docs were gathered at the %s processing level; %s\n",
+                    level.name().toLowerCase(), level == ProcessingLevel.ENDPOINTS
+                            ? "request and response bodies will not be documented"
+                            : "request and response schemas and examples will not be documented");
+    }
+
+    /**
+     * combine APIs from the REST docs into one map, merging those APIs with matching identifiers. The docs are
+     * merged pairwise, in rounds, with the merges of each round running concurrently; each merge keeps the earlier
+     * input first, so the result is the same as merging the docs one by one in order.
+     */
+    private Collection<RestDocumentation.RestApi> mergeApis(List<RestDocumentation> docs)
+        throws IOException, ClassNotFoundException {
+        if (docs.isEmpty())
+            return Collections.emptyList();
+        List<RestDocumentation> round = docs;
+        ExecutorService executor = newExecutor(docs.size() / 2);
+        try {
+            while (round.size() > 1) {
+                List<Future<RestDocumentation>> merges = new ArrayList<Future<RestDocumentation>>();
+                for (int i = 0; i + 1 < round.size(); i += 2) {
+                    final RestDocumentation first = round.get(i);
+                    final RestDocumentation second = round.get(i + 1);
+                    // merge into new docs, so that the inputs' own lists of APIs are left as they were
+                    merges.add(executor.submit(() -> new RestDocumentation().merge(first).merge(second)));
                 }
+                List<RestDocumentation> next = new ArrayList<RestDocumentation>();
+                for (Future<RestDocumentation> merge : merges)
+                    next.add(getResult(merge));
+                if (round.size() % 2 == 1)
+                    next.add(round.get(round.size() - 1));
+                round = next;
             }
+        } finally {
+            executor.shutdownNow();
         }
-        return aggregatedApis.values();
+        return round.get(0).getApis();
     }
 
     /**
-     * Filter out APIs based on user provided exclude patterns and selected scope (scope of 'all' implies no filtering).
+     * A pool of up to <code>tasks</code> threads, but no more than the configured number. Virtual threads are
+     * used when the JVM has them (Java 21 and later), since the tasks mostly wait on reading their inputs.
      */
-    private Collection<RestDocumentation.RestApi> filterApis(
-            Collection<RestDocumentation.RestApi> apis, Iterable<Pattern> excludePatterns, String scope) {
+    private ExecutorService newExecutor(int tasks) {
+        return Executors.newFixedThreadPool(Math.max(1, Math.min(_threads, tasks)), newThreadFactory());
+    }
 
-        // filter doc objects by client provided exclude patterns
-        Collection<RestDocumentation.RestApi> filteredApis = null;
-        if (excludePatterns != null) {
-            filteredApis = new LinkedList<RestDocumentation.RestApi>();
-            for (RestDocumentation.RestApi api : apis)
-                filteredApis.add(api.filter(excludePatterns));
-        } else {
-            filteredApis = apis;
+    private static ThreadFactory newThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return Executors.defaultThreadFactory();
         }
+    }
 
-        // use command-line --scope value to filter the generated documentation
-        if (!scope.equals("all")) {
-            HashSet<String> requestedScopes = new HashSet<String>(Arrays.asList(new String[]{scope}));
-
-            // ugly old-style iterating because we need to be able to remove elements as we go
-            Iterator<RestDocumentation.RestApi> apiIter = filteredApis.iterator();
-            while (apiIter.hasNext()) {
-                RestDocumentation.RestApi api = apiIter.next();
-                Iterator<RestDocumentation.RestApi.Resource> resIter = api.getResources().iterator();
-                while (resIter.hasNext()) {
-                    RestDocumentation.RestApi.Resource resource = resIter.next();
-                    Iterator<RestDocumentation.RestApi.Resource.Method> methIter = resource.getRequestMethodDocs().iterator();
-                    while (methIter.hasNext()) {
-                        HashSet<String> scopes = methIter.next().getDocScopes();
-                        scopes.retainAll(requestedScopes);
-                        if (scopes.isEmpty()) {
-                            methIter.remove();
-                        }
-                    }
-                    if (resource.getRequestMethodDocs().isEmpty()) {
-                        resIter.remove();
-                    }
-                }
-                if (api.getResources().isEmpty()) {
-                    apiIter.remove();
-                }
-            }
+    /**
+     * The result of <code>future</code>, rethrowing whatever the task threw.
+     */
+    private static <T> T getResult(Future<T> future) throws IOException, ClassNotFoundException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while reading REST docs");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof ClassNotFoundException)
+                throw (ClassNotFoundException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Filter out APIs based on the selected API identifiers, user provided exclude patterns and selected scope
+     * (scope of 'all' implies no filtering). The APIs returned are read-only views, so the loaded APIs can be
+     * filtered again, e.g. for another scope.
+     */
+    private Collection<RestDocumentation.RestApi> filterApis(
+            Collection<RestDocumentation.RestApi> apis, Iterable<Pattern> excludePatterns, String scope) {
+        Collection<RestDocumentation.RestApi> filteredApis = new ArrayList<RestDocumentation.RestApi>();
+        for (RestDocumentation.RestApi api : apis) {
+            // filter out APIs that were not selected
+            if (_apiIdentifiers != null && !_apiIdentifiers.contains(api.getIdentifier()))
+                continue;
+
+            // filter doc objects by client provided exclude patterns and the command-line --scope value
+            RestDocumentation.RestApi filtered = api.filter(excludePatterns, scope);
+            if (scope.equals("all") || !filtered.getResources().isEmpty())
+                filteredApis.add(filtered);
         }
-        
         return filteredApis;
     }
 
@@ -160,84 +305,155 @@ public class RestDocAssembler {
      * derive the common base URI for all resources in each API and declare that the API mount point.
      */
     private void deriveBaseURIs(Collection<RestDocumentation.RestApi> apis) {
-        for (RestDocumentation.RestApi api : apis) {
-            String basePath = null;
-            for (RestDocumentation.RestApi.Resource resource : api.getResources()) {
-                String resourcePath = resource.getPath();
-                if (null != resourcePath) {
-                    if (null == basePath) {
-                        basePath = resourcePath;
-                    } else {
-                        String[] baseParts = basePath.split("/");
-                        String[] resourceParts = resourcePath.split("/");
-                        basePath = "";
-                        int smallerLength = Math.min(baseParts.length, resourceParts.length);
-                        for (int i = 0; i < smallerLength && baseParts[i].equals(resourceParts[i]); ++i) {
-                            if (baseParts[i].length() > 0) {
-                                basePath += "/" + baseParts[i];
-                            }
-                        }
-                    }
-                }
-            }
-            api.setMount(basePath);
-        }
+        for (RestDocumentation.RestApi api : apis)
+            api.setMount(api.getCommonResourcePath());
     }
 
     List<String> writeDocumentation(List<RestDocumentation> docs, Iterable<Pattern> excludePatterns, String scope)
         throws IOException, ClassNotFoundException, TemplateException {
+        return writeDocumentation(docs, excludePatterns, Collections.singletonList(scope));
+    }
+
+    /**
+     * Write the documentation for each of <code>scopes</code> from the same merged APIs, so that every scope after
+     * the first only costs its filtering and rendering. With more than one scope, the output file names include the
+     * scope.
+     */
+    List<String> writeDocumentation(List<RestDocumentation> docs, Iterable<Pattern> excludePatterns,
+                                    List<String> scopes)
+        throws IOException, ClassNotFoundException, TemplateException {
         List<String> filesWritten = new ArrayList<String>();
-        
+
+        // make sure the inputs have enough detail for the requested output
+        checkProcessingLevels(docs);
+
         // combine APIs from the REST docs into one map, merging those with matching identifiers
-        Collection<RestDocumentation.RestApi> apis = mergeApis(docs);
+        Collection<RestDocumentation.RestApi> mergedApis = mergeApis(docs);
 
-        // filter out APIs based on exclude patterns and selected publishing scope
-        apis = filterApis(apis, excludePatterns, scope);
+        List<RestDocumentation.RestApi> outputApis = new ArrayList<RestDocumentation.RestApi>();
+        List<OutputFormat> outputFormats = new ArrayList<OutputFormat>();
+        for (String scope : scopes) {
+            // filter out APIs based on exclude patterns and selected publishing scope
+            Collection<RestDocumentation.RestApi> apis = filterApis(mergedApis, excludePatterns, scope);
 
-        // derive the common base URI for all resources of each API and declare that the API mount
-        deriveBaseURIs(apis);
+            // derive the common base URI for all resources of each API and declare that the API mount
+            deriveBaseURIs(apis);
 
-        Configuration conf = new Configuration();
-        conf.setClassForTemplateLoading(RestDocAssembler.class, "");
-        conf.setObjectWrapper(new DefaultObjectWrapper());
-        Writer out = null;
-        try {
+            // compute what the templates derive from resources and methods once, rather than on each use; this is
+            // done before any rendering starts, since methods are shared between scopes
             for (RestDocumentation.RestApi api : apis) {
-                Template template = conf.getTemplate(_outputTemplate);
-                Map<String, RestDocumentation.RestApi> root = new HashMap<String, RestDocumentation.RestApi>();
+                api.precomputeDerivedValues();
+                for (OutputFormat format : _outputFormats) {
+                    outputApis.add(api);
+                    outputFormats.add(format);
+                    filesWritten.add(getOutputFileName(api, scopes.size() > 1 ? scope : null,
+                            _outputFormats.size() > 1 ? format : null));
+                }
+            }
+        }
+
+        // render the outputs concurrently, in every format
+        Map<OutputFormat, Template> templates = new EnumMap<OutputFormat, Template>(OutputFormat.class);
+        for (OutputFormat format : _outputFormats) {
+            if (format.getTemplate() != null)
+                templates.put(format, _configuration.getTemplate(format.getTemplate()));
+        }
+        List<Future<Void>> results = new ArrayList<Future<Void>>();
+        ExecutorService executor = newExecutor(outputApis.size());
+        try {
+            for (int i = 0; i < outputApis.size(); i++) {
+                RestDocumentation.RestApi api = outputApis.get(i);
+                OutputFormat format = outputFormats.get(i);
+                Template template = templates.get(format);
+                File file = new File(filesWritten.get(i));
+                results.add(executor.submit(() -> writeApi(format, template, api, file)));
+            }
+            waitForOutputs(filesWritten, results);
+        } finally {
+            executor.shutdownNow();
+        }
+        return filesWritten;
+    }
+
+    /**
+     * Write <code>api</code> to <code>file</code>, with <code>template</code> if the format has one.
+     */
+    private static Void writeApi(OutputFormat format, Template template, RestDocumentation.RestApi api, File file)
+        throws IOException, TemplateException {
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            if (template == null) {
+                format.write(api, out);
+            } else {
+                Map<String, Object> root = new HashMap<String, Object>();
                 root.put("api", api);
-                String fileName = getOutputFileName(api);
-                filesWritten.add(fileName);
-                File file = new File(fileName);
-                out = new FileWriter(file);
+                root.put("fragments", new FragmentCache());
                 template.process(root, out);
-                out.flush();
-                System.err.printf("Wrote REST docs to %s\n", file.getAbsolutePath());
             }
-        } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException ignored) {
-                    // ignored
-                }
+        }
+        return null;
+    }
+
+    /**
+     * Wait for all the outputs to be written, then report every output that failed, and throw the first failure
+     * with the others added to it as suppressed exceptions.
+     */
+    private static void waitForOutputs(List<String> fileNames, List<Future<Void>> results)
+        throws IOException, TemplateException {
+        Throwable failure = null;
+        for (int i = 0; i < results.size(); i++) {
+            File file = new File(fileNames.get(i));
+            try {
+                results.get(i).get();
+                System.err.printf("Wrote REST docs to %s\n", file.getAbsolutePath());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while writing REST docs");
+            } catch (ExecutionException e) {
+                System.err.printf("error writing REST docs to %s: %s\n", file.getAbsolutePath(), e.getCause());
+                if (failure == null)
+                    failure = e.getCause();
+                else
+                    failure.addSuppressed(e.getCause());
             }
         }
-        return filesWritten;
+        if (failure instanceof IOException)
+            throw (IOException) failure;
+        if (failure instanceof TemplateException)
+            throw (TemplateException) failure;
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw new IOException(failure);
     }
 
     String getOutputFileName(RestDocumentation.RestApi api) {
-        String outputFileName = _outputFileName;
-        if (!api.getIdentifier().equals(RestDocumentation.RestApi.DEFAULT_IDENTIFIER)) {
-            StringBuilder constructedName = new StringBuilder(_outputFileName);
-            int identifierIndex = constructedName.lastIndexOf(".");
-            if (identifierIndex < 0) {
-                identifierIndex = constructedName.length();
-            }
-            constructedName.insert(identifierIndex, "-" + api.getIdentifier());
-            outputFileName = constructedName.toString();
+        return getOutputFileName(api, null, null);
+    }
+
+    /**
+     * The output file name for <code>api</code>, qualified by its identifier (unless it is the default API) and by
+     * <code>scope</code> (unless it is <code>null</code>), and with the extension of <code>format</code> (unless
+     * it is <code>null</code>).
+     */
+    String getOutputFileName(RestDocumentation.RestApi api, String scope, OutputFormat format) {
+        String qualifier = "";
+        if (!api.getIdentifier().equals(RestDocumentation.RestApi.DEFAULT_IDENTIFIER))
+            qualifier += "-" + api.getIdentifier();
+        if (scope != null)
+            qualifier += "-" + scope;
+        if (qualifier.isEmpty() && format == null)
+            return _outputFileName;
+        StringBuilder constructedName = new StringBuilder(_outputFileName);
+        int identifierIndex = constructedName.lastIndexOf(".");
+        if (identifierIndex < 0) {
+            identifierIndex = constructedName.length();
         }
-        return outputFileName;
+        if (format != null)
+            constructedName.replace(identifierIndex, constructedName.length(), "." + format.getExtension());
+        constructedName.insert(identifierIndex, qualifier);
+        return constructedName.toString();
     }
 
     static class Arguments {
@@ -250,11 +466,20 @@ public class RestDocAssembler {
         @Parameter(names = { "--exclude" }, description = "Endpoint pattern to exclude from the generated docs")
         List<String> excludes = Lists.newArrayList();
 
-        @Parameter(names = { "-f", "--format" }, description = "Format for output: html or raml")
-        String outputFormat = "html";
+        @Parameter(names = { "-f", "--format" }, description = "Formats for output: html, html-fast, raml, raml-fast, openapi, openapi-yaml and/or model-json; several formats are written in one run")
+        List<String> outputFormats = Lists.newArrayList();
         
-        @Parameter(names = { "-s", "--scope" }, description = "Publication scope for output (e.g. public, private, etc) or \"all\"")
-        String scope = "all";
+        @Parameter(names = { "--api" }, description = "Identifier of an API to document; by default all APIs are documented")
+        List<String> apis = Lists.newArrayList();
+
+        @Parameter(names = { "-s", "--scope" }, description = "Publication scope for output (e.g. public, private, etc) or \"all\"; several scopes are written to separate files in one run")
+        List<String> scopes = Lists.newArrayList();
+
+        @Parameter(names = { "-t", "--threads" }, description = "Number of inputs to read and merge concurrently")
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        @Parameter(names = { "--require-level" }, description = "Fail unless inputs were processed at this level (endpoints, types or full)")
+        String requiredLevel;
 
         @Parameter(names = { "--template-mount" }, description = "Mount point to use when filling templates.")
         String mountTemplateValue = "";
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.internal.Lists;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Runs the wsdoc {@link AnnotationProcessor} over already-compiled jars or class directories, so that the
+ * intermediate documentation data can be regenerated without recompiling the service. Each input is treated
+ * as a separate module; modules are processed concurrently, each with its own javac task in
+ * <code>-proc:only</code> mode, and each writes its intermediate file to its own directory under
+ * <code>--out</code>. Javadoc comments are only available for classes whose sources can be found via
+ * <code>--sourcepath</code>.
+ */
+public class RestDocExtractor {
+    private final List<String> _classpath;
+    private final List<String> _sourcepath;
+    private final File _outputDirectory;
+    private String _level;
+
+    public static void main(String... args) throws IOException, InterruptedException {
+        Arguments arguments = new Arguments();
+        new JCommander(arguments, args);
+
+        RestDocExtractor extractor = new RestDocExtractor(
+                splitPaths(arguments.classpath), splitPaths(arguments.sourcepath), new File(arguments.outputDirectory));
+        extractor.setLevel(arguments.level);
+        List<String> failed = extractor.extract(arguments.inputs, arguments.threads);
+        if (!failed.isEmpty())
+            throw new IllegalStateException("wsdoc extraction failed for modules: " + failed);
+    }
+
+    public RestDocExtractor(List<String> classpath, List<String> sourcepath, File outputDirectory) {
+        _classpath = classpath;
+        _sourcepath = sourcepath;
+        _outputDirectory = outputDirectory;
+    }
+
+    /**
+     * The processing level to pass on to the annotation processor, or <code>null</code> for its default.
+     */
+    public void setLevel(String level) {
+        _level = level;
+    }
+
+    /**
+     * Process each of the given jars or class directories as a separate module, using up to <code>threads</code>
+     * concurrent javac tasks. Returns the inputs that could not be processed.
+     */
+    public List<String> extract(List<String> inputs, int threads) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, inputs.size())));
+        Map<String, Future<Boolean>> results = new LinkedHashMap<String, Future<Boolean>>();
+        try {
+            for (final Map.Entry<String, File> module : getModuleOutputDirectories(inputs).entrySet()) {
+                results.put(module.getKey(),
+                        executor.submit(() -> extractModule(new File(module.getKey()), module.getValue())));
+            }
+
+            List<String> failed = new ArrayList<String>();
+            for (Map.Entry<String, Future<Boolean>> result : results.entrySet()) {
+                try {
+                    if (!result.getValue().get())
+                        failed.add(result.getKey());
+                } catch (ExecutionException e) {
+                    System.err.printf("error processing %s: %s\n", result.getKey(), e.getCause());
+                    failed.add(result.getKey());
+                }
+            }
+            return failed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The directories that the intermediate files for the given modules are written to, by module, each named
+     * after its module's jar or directory. Modules with the same name, such as several <code>target/classes</code>
+     * directories, are numbered in the order given, so that no two modules write to the same directory.
+     */
+    Map<String, File> getModuleOutputDirectories(List<String> inputs) {
+        Map<String, File> directories = new LinkedHashMap<String, File>();
+        Set<String> names = new HashSet<String>();
+        for (String input : inputs) {
+            if (directories.containsKey(input))
+                continue;
+            File module = new File(input);
+            String name = module.getName();
+            if (!module.isDirectory() && name.lastIndexOf('.') > 0)
+                name = name.substring(0, name.lastIndexOf('.'));
+            // compared without case, for file systems that ignore it
+            String unique = name;
+            for (int i = 2; !names.add(unique.toLowerCase(Locale.ROOT)); i++)
+                unique = name + "-" + i;
+            directories.put(input, new File(_outputDirectory, unique));
+        }
+        return directories;
+    }
+
+    private boolean extractModule(File module, File outputDirectory) throws IOException {
+        List<String> classNames = getClassNames(module);
+        if (classNames.isEmpty()) {
+            System.err.println("no classes found in " + module);
+            return true;
+        }
+
+        outputDirectory.mkdirs();
+
+        List<String> classpath = new ArrayList<String>();
+        classpath.add(module.getPath());
+        classpath.addAll(_classpath);
+
+        List<String> options = new ArrayList<String>(Arrays.asList("-proc:only", "-implicit:none"));
+        if (!_sourcepath.isEmpty()) {
+            // prefer sources when both are available, since Javadoc comments only exist in the sources
+            options.add("-Xprefer:source");
+        }
+        if (_level != null)
+            options.add("-A" + AnnotationProcessor.LEVEL_OPTION + "=" + _level);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        URLClassLoader schemaClassLoader = newClassLoader(classpath);
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(outputDirectory));
+            fileManager.setLocation(StandardLocation.CLASS_PATH, toFiles(classpath));
+            // an empty sourcepath stops javac from looking for sources on the classpath
+            fileManager.setLocation(StandardLocation.SOURCE_PATH, toFiles(_sourcepath));
+
+            // the processor loads DTO classes to generate JSON schemas, so give it access to the module's classes
+            AnnotationProcessor processor = new AnnotationProcessor();
+            processor.setSchemaClassLoader(schemaClassLoader);
+
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, classNames, null);
+            task.setProcessors(Collections.singleton(processor));
+            boolean success = task.call();
+
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR || diagnostic.getKind() == Diagnostic.Kind.NOTE)
+                    System.err.printf("%s: %s\n", module.getName(), diagnostic.getMessage(null));
+            }
+            return success;
+        } finally {
+            fileManager.close();
+            schemaClassLoader.close();
+        }
+    }
+
+    private static List<File> toFiles(List<String> path) {
+        List<File> files = new ArrayList<File>();
+        for (String entry : path)
+            files.add(new File(entry));
+        return files;
+    }
+
+    private URLClassLoader newClassLoader(List<String> classpath) throws IOException {
+        List<URL> urls = new ArrayList<URL>();
+        for (String entry : classpath)
+            urls.add(new File(entry).toURI().toURL());
+        return new URLClassLoader(urls.toArray(new URL[urls.size()]), AnnotationProcessor.class.getClassLoader());
+    }
+
+    /**
+     * Lists the top-level classes of a jar or class directory. Nested classes are reached by the processor
+     * through their enclosing classes, so they are not passed to javac separately.
+     */
+    static List<String> getClassNames(File module) throws IOException {
+        List<String> classNames = new ArrayList<String>();
+        if (module.isDirectory()) {
+            addClassNames(module, "", classNames);
+        } else {
+            JarFile jar = new JarFile(module);
+            try {
+                for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                    String name = entries.nextElement().getName();
+                    if (!name.startsWith("META-INF/"))
+                        addClassName(name, classNames);
+                }
+            } finally {
+                jar.close();
+            }
+        }
+        return classNames;
+    }
+
+    private static void addClassNames(File dir, String prefix, List<String> classNames) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory())
+                addClassNames(file, prefix + file.getName() + "/", classNames);
+            else
+                addClassName(prefix + file.getName(), classNames);
+        }
+    }
+
+    private static void addClassName(String path, List<String> classNames) {
+        if (!path.endsWith(".class") || path.contains("$"))
+            return;
+        String className = path.substring(0, path.length() - ".class".length()).replace('/', '.');
+        if (className.endsWith("package-info") || className.endsWith("module-info"))
+            return;
+        classNames.add(className);
+    }
+
+    private static List<String> splitPaths(List<String> paths) {
+        List<String> split = new ArrayList<String>();
+        for (String path : paths) {
+            for (String entry : path.split(File.pathSeparator)) {
+                if (!entry.isEmpty())
+                    split.add(entry);
+            }
+        }
+        return split;
+    }
+
+    static class Arguments {
+        @Parameter(description = "Compiled jars or class directories to process, one module per input")
+        List<String> inputs = Lists.newArrayList();
+
+        @Parameter(names = { "-o", "--out" }, description = "Directory to write one intermediate file per module to")
+        String outputDirectory = "wsdoc";
+
+        @Parameter(names = { "-cp", "--classpath" }, description = "Additional classpath needed to resolve the inputs' types")
+        List<String> classpath = Lists.newArrayList();
+
+        @Parameter(names = { "--sourcepath" }, description = "Source roots to read Javadoc comments from")
+        List<String> sourcepath = Lists.newArrayList();
+
+        @Parameter(names = { "--level" }, description = "Processing level: endpoints, types or full")
+        String level;
+
+        @Parameter(names = { "-t", "--threads" }, description = "Number of modules to process concurrently")
+        int threads = Runtime.getRuntime().availableProcessors();
+    }
+}
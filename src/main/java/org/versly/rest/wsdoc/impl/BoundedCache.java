@@ -0,0 +1,127 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least-recently-used memo cache with a maximum number of entries. When the JVM's heap looks nearly exhausted,
+ * the cache additionally sheds half of its entries, so that a long-lived build daemon does not keep large
+ * compiler data structures reachable just for memoization. Null values are supported, so callers can
+ * distinguish a memoized <code>null</code> from a miss with {@link #containsKey}.
+ * <p>
+ * The memory check is only a rough heuristic: the used heap it looks at includes garbage that hasn't been
+ * collected yet, so on a busy heap it may trim entries that a collection would have left room for. Such trims
+ * are counted by {@link #getMemoryTrims}, so callers can report them.
+ */
+public class BoundedCache<K, V> {
+    private static final int MEMORY_CHECK_INTERVAL = 256;
+    private static final double MEMORY_HIGH_WATER_MARK = 0.9;
+
+    private final int _maxEntries;
+    private final LinkedHashMap<K, V> _entries;
+    private int _peakEntries;
+    private long _evictions;
+    private int _memoryTrims;
+    private int _putsSinceMemoryCheck;
+
+    public BoundedCache(final int maxEntries) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        _maxEntries = maxEntries;
+        _entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > _maxEntries) {
+                    _evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean containsKey(K key) {
+        return _entries.containsKey(key);
+    }
+
+    public V get(K key) {
+        return _entries.get(key);
+    }
+
+    public void put(K key, V value) {
+        _entries.put(key, value);
+        _peakEntries = Math.max(_peakEntries, _entries.size());
+        if (++_putsSinceMemoryCheck >= MEMORY_CHECK_INTERVAL) {
+            _putsSinceMemoryCheck = 0;
+            if (isMemoryLow()) {
+                trimToSize(_entries.size() / 2);
+                _memoryTrims++;
+            }
+        }
+    }
+
+    /**
+     * Evict the least recently used entries until at most <code>size</code> remain.
+     */
+    public void trimToSize(int size) {
+        Iterator<K> keys = _entries.keySet().iterator();
+        while (_entries.size() > size && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            _evictions++;
+        }
+    }
+
+    public void clear() {
+        _entries.clear();
+    }
+
+    public int size() {
+        return _entries.size();
+    }
+
+    public int getMaxEntries() {
+        return _maxEntries;
+    }
+
+    /**
+     * The largest number of entries that this cache has held at once.
+     */
+    public int getPeakEntries() {
+        return _peakEntries;
+    }
+
+    public long getEvictions() {
+        return _evictions;
+    }
+
+    /**
+     * The number of times this cache has shed half of its entries because the heap looked nearly exhausted.
+     */
+    public int getMemoryTrims() {
+        return _memoryTrims;
+    }
+
+    private static boolean isMemoryLow() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return used > runtime.maxMemory() * MEMORY_HIGH_WATER_MARK;
+    }
+}
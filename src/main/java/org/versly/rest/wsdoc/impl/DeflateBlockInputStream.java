@@ -0,0 +1,129 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses the block frames written by {@link DeflateBlockOutputStream}, one block at a time.
+ */
+class DeflateBlockInputStream extends InputStream {
+    /** The largest uncompressed block accepted, to fail fast on corrupt input. */
+    static final int MAX_BLOCK_SIZE = 1 << 24;
+
+    private final DataInputStream _in;
+    private final Inflater _inflater = new Inflater(true);
+    private byte[] _block = new byte[0];
+    private int _position;
+    private int _limit;
+    private boolean _eof;
+
+    DeflateBlockInputStream(InputStream in) {
+        _in = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill())
+            return -1;
+        return _block[_position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0)
+            return 0;
+        if (!fill())
+            return -1;
+        int n = Math.min(length, _limit - _position);
+        System.arraycopy(_block, _position, bytes, offset, n);
+        _position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return _limit - _position;
+    }
+
+    /**
+     * Release the inflater. The underlying stream is left open, since it belongs to the caller.
+     */
+    @Override
+    public void close() {
+        _eof = true;
+        _inflater.end();
+    }
+
+    private boolean fill() throws IOException {
+        while (_position == _limit) {
+            if (_eof)
+                return false;
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        int length = readVarint();
+        if (length == 0) {
+            close();
+            return;
+        }
+        int compressedLength = readVarint();
+        if (length > MAX_BLOCK_SIZE || compressedLength > MAX_BLOCK_SIZE)
+            throw new IOException("corrupt compressed block of " + length + " bytes");
+        byte[] compressed = new byte[compressedLength];
+        _in.readFully(compressed);
+        if (_block.length < length)
+            _block = new byte[length];
+
+        _inflater.reset();
+        _inflater.setInput(compressed);
+        try {
+            int n = 0;
+            while (n < length) {
+                int inflated = _inflater.inflate(_block, n, length - n);
+                if (inflated == 0 && (_inflater.finished() || _inflater.needsInput()))
+                    throw new IOException("compressed block is shorter than its declared " + length + " bytes");
+                n += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt compressed block", e);
+        }
+        _position = 0;
+        _limit = length;
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = _in.read();
+            if (b < 0)
+                throw new EOFException("compressed stream ended without an end frame");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("malformed varint");
+    }
+}
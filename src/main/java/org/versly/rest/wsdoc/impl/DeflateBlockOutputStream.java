@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a stream as a sequence of independently deflated blocks, as read by {@link DeflateBlockInputStream}.
+ * Each block is written as a frame: its uncompressed length and its compressed length, as varints, followed by the
+ * raw deflate data. A frame with an uncompressed length of 0 ends the stream, so that readers can decode it as it
+ * arrives without knowing its length up front.
+ */
+class DeflateBlockOutputStream extends FilterOutputStream {
+    /** The uncompressed size of every block but the last. */
+    static final int BLOCK_SIZE = 1 << 16;
+
+    private final Deflater _deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final byte[] _block = new byte[BLOCK_SIZE];
+    private final byte[] _buffer = new byte[BLOCK_SIZE];
+    private int _count;
+    private boolean _finished;
+
+    DeflateBlockOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (_count == BLOCK_SIZE)
+            writeBlock();
+        _block[_count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (_count == BLOCK_SIZE)
+                writeBlock();
+            int n = Math.min(length, BLOCK_SIZE - _count);
+            System.arraycopy(bytes, offset, _block, _count, n);
+            _count += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Write the last block and the end frame, without closing the underlying stream.
+     */
+    void finish() throws IOException {
+        if (_finished)
+            return;
+        try {
+            if (_count > 0)
+                writeBlock();
+            out.write(0);
+            out.flush();
+        } finally {
+            _finished = true;
+            _deflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (_finished)
+            throw new IOException("stream already finished");
+        _deflater.reset();
+        _deflater.setInput(_block, 0, _count);
+        _deflater.finish();
+        RestDocumentationWriter.VarintOutput compressed = new RestDocumentationWriter.VarintOutput();
+        while (!_deflater.finished()) {
+            int n = _deflater.deflate(_buffer);
+            compressed.write(_buffer, 0, n);
+        }
+
+        RestDocumentationWriter.VarintOutput frame = new RestDocumentationWriter.VarintOutput();
+        frame.writeVarint(_count);
+        frame.writeVarint(compressed.size());
+        frame.writeTo(out);
+        compressed.writeTo(out);
+        _count = 0;
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import freemarker.template.AdapterTemplateModel;
+import freemarker.template.DefaultObjectWrapper;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateMethodModelEx;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateNumberModel;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A FreeMarker object wrapper for the documentation model, which gives templates the properties of APIs,
+ * resources, methods, URL fields and JSON types through plain getter calls instead of bean introspection and
+ * reflection. JSON types also have a <code>kind</code> property (<code>primitive</code>, <code>object</code>,
+ * <code>recursive</code>, <code>array</code> or <code>dict</code>), so templates can tell them apart without
+ * comparing class names. Any other property, and any other object, is wrapped as by {@link DefaultObjectWrapper}.
+ */
+public class DocumentationObjectWrapper extends DefaultObjectWrapper {
+    /** Returned by {@link ObjectModel#getProperty} for the properties it doesn't handle itself. */
+    private static final Object UNKNOWN = new Object();
+
+    @Override
+    public TemplateModel wrap(Object obj) throws TemplateModelException {
+        if (obj instanceof RestDocumentation.RestApi)
+            return new ApiModel((RestDocumentation.RestApi) obj);
+        if (obj instanceof RestDocumentation.RestApi.Resource)
+            return new ResourceModel((RestDocumentation.RestApi.Resource) obj);
+        if (obj instanceof RestDocumentation.RestApi.Resource.Method)
+            return new MethodModel((RestDocumentation.RestApi.Resource.Method) obj);
+        if (obj instanceof RestDocumentation.RestApi.Resource.UrlFields)
+            return new UrlFieldsModel((RestDocumentation.RestApi.Resource.UrlFields) obj);
+        if (obj instanceof RestDocumentation.RestApi.Resource.UrlFields.UrlField)
+            return new UrlFieldModel((RestDocumentation.RestApi.Resource.UrlFields.UrlField) obj);
+        if (obj instanceof JsonType)
+            return new JsonTypeModel((JsonType) obj);
+        if (obj instanceof JsonObject.JsonField)
+            return new JsonFieldModel((JsonObject.JsonField<?>) obj);
+        return super.wrap(obj);
+    }
+
+    /**
+     * The kind of a JSON type, as given by the <code>kind</code> property of its template model.
+     */
+    static String getKind(JsonType type) {
+        if (type instanceof JsonPrimitive)
+            return "primitive";
+        if (type instanceof JsonObject)
+            return "object";
+        if (type instanceof JsonRecursiveObject)
+            return "recursive";
+        if (type instanceof JsonArray)
+            return "array";
+        if (type instanceof JsonDict)
+            return "dict";
+        return null;
+    }
+
+    /**
+     * A template model for a model object, whose properties are wrapped by this wrapper when read.
+     */
+    private abstract class ObjectModel<T> implements TemplateHashModel, AdapterTemplateModel {
+        protected final T _object;
+        private TemplateHashModel _beanModel;
+
+        ObjectModel(T object) {
+            _object = object;
+        }
+
+        /**
+         * The value of the property <code>key</code>, or {@link #UNKNOWN} if it isn't handled here.
+         */
+        protected abstract Object getProperty(String key);
+
+        public TemplateModel get(String key) throws TemplateModelException {
+            Object value = getProperty(key);
+            if (value != UNKNOWN)
+                return wrap(value);
+            if (_beanModel == null)
+                _beanModel = (TemplateHashModel) DocumentationObjectWrapper.super.wrap(_object);
+            return _beanModel.get(key);
+        }
+
+        public boolean isEmpty() {
+            return false;
+        }
+
+        // FreeMarker 2.3 declares the hint as a raw Class, as it does the arguments of template methods
+        @SuppressWarnings("rawtypes")
+        public Object getAdaptedObject(Class hint) {
+            return _object;
+        }
+    }
+
+    /**
+     * A template method taking a single indentation argument.
+     */
+    private abstract static class IndentMethod implements TemplateMethodModelEx {
+        @SuppressWarnings("rawtypes")
+        public Object exec(List arguments) throws TemplateModelException {
+            if (arguments.size() != 1 || !(arguments.get(0) instanceof TemplateNumberModel))
+                throw new TemplateModelException("expected a single number argument");
+            return exec(((TemplateNumberModel) arguments.get(0)).getAsNumber().intValue());
+        }
+
+        protected abstract Object exec(int indent);
+    }
+
+    private class ApiModel extends ObjectModel<RestDocumentation.RestApi> {
+        ApiModel(RestDocumentation.RestApi api) {
+            super(api);
+        }
+
+        @Override
+        protected Object getProperty(String key) {
+            switch (key) {
+                case "identifier":
+                    return _object.getIdentifier();
+                case "mount":
+                    return _object.getMount();
+                case "apiTitle":
+                    return _object.getApiTitle();
+                case "apiVersion":
+                    return _object.getApiVersion();
+                case "apiDocumentation":
+                    return _object.getApiDocumentation();
+                case "traits":
+                    return _object.getTraits();
+                case "getTraits":
+                    return new TemplateMethodModelEx() {
+                        @SuppressWarnings("rawtypes")
+                        public Object exec(List arguments) {
+                            return _object.getTraits();
+                        }
+                    };
+                case "resources":
+                    return _object.getResources();
+                case "typeCatalog":
+                    return _object.getTypeCatalog();
+                case "schemas":
+                    return _object.getSchemaCatalog().getSchemas();
+                case "schemaNames":
+                    return _object.getSchemaCatalog().getNames();
+                case "indentedApiDocumentationText":
+                    return new IndentMethod() {
+                        protected Object exec(int indent) {
+                            return _object.getIndentedApiDocumentationText(indent);
+                        }
+                    };
+                case "indentedApiTraits":
+                    return new IndentMethod() {
+                        protected Object exec(int indent) {
+                            return _object.getIndentedApiTraits(indent);
+                        }
+                    };
+                default:
+                    return UNKNOWN;
+            }
+        }
+    }
+
+    private class ResourceModel extends ObjectModel<RestDocumentation.RestApi.Resource> {
+        ResourceModel(RestDocumentation.RestApi.Resource resource) {
+            super(resource);
+        }
+
+        @Override
+        protected Object getProperty(String key) {
+            switch (key) {
+                case "path":
+                    return _object.getPath();
+                case "pathLeaf":
+                    return _object.getPathLeaf();
+                case "parent":
+                    return _object.getParent();
+                case "children":
+                    return _object.getChildren();
+                case "requestMethodDocs":
+                    return _object.getRequestMethodDocs();
+                case "sortedRequestMethodDocs":
+                    return _object.getSortedRequestMethodDocs();
+                case "resourceUrlSubstitutions":
+                    return _object.getResourceUrlSubstitutions();
+                default:
+                    return UNKNOWN;
+            }
+        }
+    }
+
+    private class MethodModel extends ObjectModel<RestDocumentation.RestApi.Resource.Method> {
+        MethodModel(RestDocumentation.RestApi.Resource.Method method) {
+            super(method);
+        }
+
+        @Override
+        protected Object getProperty(String key) {
+            switch (key) {
+                case "requestMethod":
+                    return _object.getRequestMethod();
+                case "key":
+                    return _object.getKey();
+                case "commentText":
+                    return _object.getCommentText();
+                case "indentedCommentText":
+                    return new IndentMethod() {
+                        protected Object exec(int indent) {
+                            return _object.getIndentedCommentText(indent);
+                        }
+                    };
+                case "multipartRequest":
+                    return _object.isMultipartRequest();
+                case "urlSubstitutions":
+                    return _object.getUrlSubstitutions();
+                case "methodSpecificUrlSubstitutions":
+                    return _object.getMethodSpecificUrlSubstitutions();
+                case "urlParameters":
+                    return _object.getUrlParameters();
+                case "requestBody":
+                    return _object.getRequestBody();
+                case "responseBody":
+                    return _object.getResponseBody();
+                case "requestSchema":
+                    return _object.getRequestSchema();
+                case "responseSchema":
+                    return _object.getResponseSchema();
+                case "requestExample":
+                    return _object.getRequestExample();
+                case "responseExample":
+                    return _object.getResponseExample();
+                case "docScopes":
+                    return _object.getDocScopes();
+                case "traits":
+                    return _object.getTraits();
+                case "traitsAsString":
+                    return _object.getTraitsAsString();
+                case "authScopes":
+                    return _object.getAuthScopes();
+                case "authScopesAsString":
+                    return _object.getAuthScopesAsString();
+                default:
+                    return UNKNOWN;
+            }
+        }
+    }
+
+    private class UrlFieldsModel extends ObjectModel<RestDocumentation.RestApi.Resource.UrlFields> {
+        UrlFieldsModel(RestDocumentation.RestApi.Resource.UrlFields fields) {
+            super(fields);
+        }
+
+        @Override
+        protected Object getProperty(String key) {
+            if (!key.equals("fields"))
+                return UNKNOWN;
+            // FreeMarker keeps the order of a LinkedHashMap, but copies the read-only getFields() into a HashMap
+            Map<String, RestDocumentation.RestApi.Resource.UrlFields.UrlField> fields =
+                    new LinkedHashMap<String, RestDocumentation.RestApi.Resource.UrlFields.UrlField>();
+            _object.copyTo(fields);
+            return fields;
+        }
+    }
+
+    private class UrlFieldModel extends ObjectModel<RestDocumentation.RestApi.Resource.UrlFields.UrlField> {
+        UrlFieldModel(RestDocumentation.RestApi.Resource.UrlFields.UrlField field) {
+            super(field);
+        }
+
+        @Override
+        protected Object getProperty(String key) {
+            switch (key) {
+                case "fieldType":
+                    return _object.getFieldType();
+                case "fieldDescription":
+                    return _object.getFieldDescription();
+                default:
+                    return UNKNOWN;
+            }
+        }
+    }
+
+    private class JsonTypeModel extends ObjectModel<JsonType> {
+        JsonTypeModel(JsonType type) {
+            super(type);
+        }
+
+        @Override
+        protected Object getProperty(String key) {
+            if (key.equals("kind"))
+                return getKind(_object);
+            if (_object instanceof JsonPrimitive) {
+                if (key.equals("typeName"))
+                    return ((JsonPrimitive) _object).getTypeName();
+                if (key.equals("restrictions"))
+                    return ((JsonPrimitive) _object).getRestrictions();
+            } else if (_object instanceof JsonObject) {
+                if (key.equals("fields"))
+                    return ((JsonObject) _object).getFields();
+                if (key.equals("typeName"))
+                    return ((JsonObject) _object).getTypeName();
+            } else if (_object instanceof JsonRecursiveObject) {
+                if (key.equals("recursedObjectTypeName"))
+                    return ((JsonRecursiveObject) _object).getRecursedObjectTypeName();
+            } else if (_object instanceof JsonArray) {
+                if (key.equals("elementType"))
+                    return ((JsonArray) _object).getElementType();
+            } else if (_object instanceof JsonDict) {
+                if (key.equals("keyType"))
+                    return ((JsonDict) _object).getKeyType();
+                if (key.equals("valueType"))
+                    return ((JsonDict) _object).getValueType();
+            }
+            return UNKNOWN;
+        }
+    }
+
+    private class JsonFieldModel extends ObjectModel<JsonObject.JsonField<?>> {
+        JsonFieldModel(JsonObject.JsonField<?> field) {
+            super(field);
+        }
+
+        @Override
+        protected Object getProperty(String key) {
+            switch (key) {
+                case "fieldName":
+                    return _object.getFieldName();
+                case "fieldType":
+                    return _object.getFieldType();
+                case "commentText":
+                    return _object.getCommentText();
+                default:
+                    return UNKNOWN;
+            }
+        }
+    }
+}
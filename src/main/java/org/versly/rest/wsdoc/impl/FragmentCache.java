@@ -0,0 +1,73 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import freemarker.core.Environment;
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateDirectiveModel;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateModel;
+import freemarker.template.utility.DeepUnwrap;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rendered fragments of one output, such as the markup of a JSON type, so that a fragment that appears many times
+ * is only rendered once. In a template, it is a directive that renders its body once for each distinct set of
+ * parameters and repeats that output afterwards:
+ * <pre>
+ * &lt;@fragments type=json&gt;...&lt;/@fragments&gt;
+ * </pre>
+ * Model objects are compared by identity. A cache must not be shared between outputs, nor used concurrently.
+ */
+public class FragmentCache implements TemplateDirectiveModel {
+    private final Map<Object, String> _fragments = new HashMap<Object, String>();
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void execute(Environment env, Map params, TemplateModel[] loopVars, TemplateDirectiveBody body)
+        throws TemplateException, IOException {
+        Map<Object, Object> key = new HashMap<Object, Object>();
+        for (Object param : params.entrySet()) {
+            Map.Entry entry = (Map.Entry) param;
+            key.put(entry.getKey(), DeepUnwrap.unwrap((TemplateModel) entry.getValue()));
+        }
+        String fragment = get(key);
+        if (fragment == null && body != null) {
+            StringWriter out = new StringWriter();
+            body.render(out);
+            fragment = out.toString();
+            put(key, fragment);
+        }
+        if (fragment != null)
+            env.getOut().write(fragment);
+    }
+
+    /**
+     * The fragment rendered for <code>key</code>, or <code>null</code> if it hasn't been rendered yet.
+     */
+    public String get(Object key) {
+        return _fragments.get(key);
+    }
+
+    public void put(Object key, String fragment) {
+        _fragments.put(key, fragment);
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes the HTML documentation of an API straight from the model, without going through FreeMarker. The markup is
+ * the same, byte for byte, as that of <code>RestDocumentation.ftl</code>, including its whitespace, so the two can be
+ * used interchangeably; a change to either must be made to both.
+ */
+public class HtmlDocumentationWriter {
+    private static final String HEAD =
+            "<!--\n"
+            + " ~ Copyright 2011 TaskDock, Inc.\n"
+            + " ~\n"
+            + " ~ Licensed under the Apache License, Version 2.0 (the \"License\");\n"
+            + " ~ you may not use this file except in compliance with the License.\n"
+            + " ~ You may obtain a copy of the License at\n"
+            + " ~\n"
+            + " ~     http://www.apache.org/licenses/LICENSE-2.0\n"
+            + " ~\n"
+            + " ~ Unless required by applicable law or agreed to in writing, software\n"
+            + " ~ distributed under the License is distributed on an \"AS IS\" BASIS,\n"
+            + " ~ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.\n"
+            + " ~ See the License for the specific language governing permissions and\n"
+            + " ~ limitations under the License.\n"
+            + "-->\n"
+            + "\n"
+            + "\n"
+            + "<html>\n"
+            + "    <head>\n"
+            + "        <title>REST Endpoint Documentation</title>\n"
+            + "        <style type=\"text/css\">\n"
+            + "            div.section-title { font-size: 18px; font-weight: bold; }\n"
+            + "            div.resource-summary { font-family: monospace; padding-top: 10px; }\n"
+            + "            .resource-summary div { padding-left: 15px }\n"
+            + "\n"
+            + "            div.resource { border-top: 1px solid gray; padding-top: 5px; margin-top: 15px; }\n"
+            + "            div.resource-header { font-family: monospace; font-size: 18px; font-weight: bold; padding-bottom: 15px; }\n"
+            + "            div.resource-docs { padding-bottom: 20px; white-space: pre; }\n"
+            + "\n"
+            + "            div.url-info { padding-bottom: 20px; }\n"
+            + "            div.url-info table { width: auto; border-spacing: 0px; }\n"
+            + "            div.url-info thead td { border-bottom: 1px dashed gray; }\n"
+            + "            div.url-info thead td,.url-info-key { padding-right: 50px; }\n"
+            + "            .url-info-key { font-family: monospace; vertical-align: top; }\n"
+            + "            .url-info-expected-type { font-family: monospace; }\n"
+            + "\n"
+            + "            div.request-body { padding-bottom: 20px; }\n"
+            + "            div.response-body { padding-bottom: 20px; }\n"
+            + "\n"
+            + "            div.body-title { width: 400px; border-bottom: 1px dashed gray; }\n"
+            + "\n"
+            + "            div.type { border-top: 1px solid gray; padding-top: 5px; margin-top: 15px; }\n"
+            + "            div.type-header { font-family: monospace; font-size: 18px; font-weight: bold; padding-bottom: 15px; }\n"
+            + "\n"
+            + "            div.body-contents { font-family: monospace; }\n"
+            + "            div.json-field { padding-left: 15px; }\n"
+            + "            span.json-field-name { font-weight: bold; }\n"
+            + "            span.json-primitive-type { color: gray; }\n"
+            + "            div.json-primitive-restrictions { color: gray; padding-left: 30px; }\n"
+            + "            div.json-field-comment { color: gray; padding-left: 30px; }\n"
+            + "        </style>\n"
+            + "    </head>\n"
+            + "    <body>\n"
+            + "\n"
+            + "        <div class=\"section-title\">Overview</div>\n";
+
+    private static final String TAIL =
+            "    </body>\n"
+            + "</html>\n"
+            + "\n";
+
+    private final FragmentCache _jsonFragments = new FragmentCache();
+    private Writer _out;
+
+    public HtmlDocumentationWriter(Writer out) {
+        _out = out;
+    }
+
+    public void write(RestDocumentation.RestApi api) throws IOException {
+        _out.write(HEAD);
+        for (RestDocumentation.RestApi.Resource resource : api.getResources()) {
+            _out.write("                <div class=\"resource-summary\">\n");
+            write("                    <span class=\"resource-summary-path\">", resource.getPath(), "</span>\n");
+            _out.write("                    <div>\n");
+            for (RestDocumentation.RestApi.Resource.Method method : resource.getSortedRequestMethodDocs()) {
+                write("                            <a href=\"#", method.getKey(), "\">");
+                write(method.getRequestMethod(), "</a>\n");
+            }
+            _out.write("                    </div>\n");
+            _out.write("                </div>\n");
+        }
+        _out.write("\n");
+
+        for (RestDocumentation.RestApi.Resource resource : api.getResources()) {
+            for (RestDocumentation.RestApi.Resource.Method method : resource.getRequestMethodDocs())
+                writeMethod(resource, method);
+        }
+        _out.write("\n");
+
+        // the named types used by the methods above, which link to them rather than repeating them
+        Map<String, JsonObject> catalog = api.getTypeCatalog();
+        if (!catalog.isEmpty()) {
+            _out.write("        <div class=\"section-title\">Types</div>\n");
+            for (Map.Entry<String, JsonObject> type : catalog.entrySet()) {
+                write("                    <a id=\"type-", escape(type.getKey()), "\"/>\n");
+                _out.write("                    <div class=\"type\">\n");
+                write("                        <div class=\"type-header\">", escape(type.getKey()), "</div>\n");
+                _out.write("                        <div class=\"body-contents\">");
+                renderJson(type.getValue());
+                _out.write("</div>\n");
+                _out.write("                    </div>\n");
+            }
+        }
+        _out.write(TAIL);
+        _out.flush();
+    }
+
+    private void writeMethod(RestDocumentation.RestApi.Resource resource,
+                             RestDocumentation.RestApi.Resource.Method method) throws IOException {
+        write("                    <a id=\"", method.getKey(), "\"/>\n");
+        _out.write("                    <div class=\"resource\">\n");
+        _out.write("                        <div class=\"resource-header\">\n");
+        write("                                <span class=\"method\">", method.getRequestMethod(), "</span>\n");
+        write("<span class=\"path\">", resource.getPath(), "</span>");
+
+        // append any URL parameters to the end of the main banner
+        RestDocumentation.RestApi.Resource.UrlFields params = method.getUrlParameters();
+        if (params.size() > 0) {
+            _out.write("?");
+            for (int i = 0; i < params.size(); i++) {
+                write("<span class=\"url-param-key\">", params.getName(i), "</span>");
+                _out.write("=<span class=\"url-param-expected-type\">");
+                writeJson(params.getField(i).getFieldType());
+                _out.write("</span>");
+                if (i < params.size() - 1)
+                    _out.write("&");
+            }
+        }
+        _out.write("                        </div>\n");
+        _out.write("\n");
+
+        if (method.getCommentText() != null)
+            write("                            <div class=\"resource-docs\">", method.getCommentText(), "</div>\n");
+        _out.write("\n");
+
+        if (method.isMultipartRequest()) {
+            _out.write("                            <div class=\"multipart-notice\">\n");
+            _out.write("                                Note: this endpoint expects a multipart request body.\n");
+            _out.write("                            </div>\n");
+        }
+        _out.write("\n");
+
+        writeUrlFields("URL Substitution Key", method.getUrlSubstitutions());
+        _out.write("\n");
+        writeUrlFields("Query Parameter", params);
+        _out.write("\n");
+        _out.write("\n");
+
+        writeBody("request-body", "Request Body", method.getRequestBody());
+        _out.write("\n");
+        writeBody("response-body", "Response Body", method.getResponseBody());
+        _out.write("                    </div>\n");
+    }
+
+    private void writeUrlFields(String title, RestDocumentation.RestApi.Resource.UrlFields fields)
+        throws IOException {
+        if (fields.size() == 0)
+            return;
+        _out.write("                            <div class=\"url-info\">\n");
+        _out.write("                                <table>\n");
+        _out.write("                                    <thead>\n");
+        write("                                        <tr><td>", title,
+                "</td><td>Expected Type</td><td>Description</td></tr>\n");
+        _out.write("                                    </thead>\n");
+        for (int i = 0; i < fields.size(); i++) {
+            RestDocumentation.RestApi.Resource.UrlFields.UrlField field = fields.getField(i);
+            _out.write("                                        <tr>\n");
+            write("                                            <td class=\"url-info-key\">", fields.getName(i),
+                    "</td>\n");
+            _out.write("                                            <td class=\"url-info-expected-type\">");
+            writeJson(field.getFieldType());
+            _out.write("</td>\n");
+            write("                                            <td class=\"json-field-comment\">",
+                    field.getFieldDescription() == null ? "" : field.getFieldDescription(), "</td>\n");
+            _out.write("                                        </tr>\n");
+        }
+        _out.write("                                </table>\n");
+        _out.write("                            </div>\n");
+    }
+
+    private void writeBody(String cssClass, String title, JsonType body) throws IOException {
+        if (body == null)
+            return;
+        write("                            <div class=\"", cssClass, "\">\n");
+        write("                                <div class=\"body-title\">", title, "</div>\n");
+        _out.write("                                <div class=\"body-contents\">");
+        writeJson(body);
+        _out.write("</div>\n");
+        _out.write("                            </div>\n");
+    }
+
+    /**
+     * Write the markup of <code>json</code>, which is only rendered the first time the type is written, or a link
+     * to it if it is a named type.
+     */
+    private void writeJson(JsonType json) throws IOException {
+        if (json instanceof JsonObject && ((JsonObject) json).getTypeName() != null) {
+            String typeName = escape(((JsonObject) json).getTypeName());
+            write("<a class=\"json-type-ref\" href=\"#type-", typeName, "\">", typeName, "</a>");
+            return;
+        }
+        String fragment = _jsonFragments.get(json);
+        if (fragment == null) {
+            Writer out = _out;
+            _out = new StringWriter();
+            try {
+                renderJson(json);
+                fragment = _out.toString();
+            } finally {
+                _out = out;
+            }
+            _jsonFragments.put(json, fragment);
+        }
+        _out.write(fragment);
+    }
+
+    private void renderJson(JsonType json) throws IOException {
+        if (json instanceof JsonPrimitive) {
+            JsonPrimitive primitive = (JsonPrimitive) json;
+            write("<span class=\"json-primitive-type\">", primitive.getTypeName(), "</span>");
+            if (primitive.getRestrictions() != null) {
+                _out.write("<div class=\"json-primitive-restrictions\">one of [ ");
+                for (Iterator<String> it = primitive.getRestrictions().iterator(); it.hasNext(); ) {
+                    _out.write(it.next());
+                    if (it.hasNext())
+                        _out.write(", ");
+                }
+                _out.write(" ]</div>");
+            }
+        } else if (json instanceof JsonObject) {
+            _out.write("    <span class=\"json-object\">{\n");
+            _out.write("    <div class=\"json-fields\">\n");
+            for (JsonObject.JsonField field : ((JsonObject) json).getFields()) {
+                _out.write("            <div class=\"json-field\">\n");
+                write("                <span class=\"json-field-name\">", field.getFieldName(), "</span>\n");
+                writeJson(field.getFieldType());
+                if (field.getCommentText() != null)
+                    write("                    <div class=\"json-field-comment\">", field.getCommentText(),
+                            "</div>\n");
+                _out.write("            </div>\n");
+            }
+            _out.write("</div></span>    }\n");
+        } else if (json instanceof JsonRecursiveObject) {
+            write("    <span class=\"json-primitive-type\">",
+                    ((JsonRecursiveObject) json).getRecursedObjectTypeName(), " &#x21ba;</span>\n");
+        } else if (json instanceof JsonArray) {
+            _out.write("    <span class=\"json-array\">[\n");
+            writeJson(((JsonArray) json).getElementType());
+            _out.write("    ]</span>\n");
+        } else if (json instanceof JsonDict) {
+            _out.write("    <span class=\"json-dict\">[\n");
+            writeJson(((JsonDict) json).getKeyType());
+            _out.write("        -&gt;\n");
+            writeJson(((JsonDict) json).getValueType());
+            _out.write("    ]</span>\n");
+        }
+    }
+
+    /**
+     * Escape <code>text</code> for HTML, as FreeMarker's <code>?html</code> does.
+     */
+    private static String escape(String text) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = c == '<' ? "&lt;" : c == '>' ? "&gt;" : c == '&' ? "&amp;" : c == '"' ? "&quot;"
+                    : null;
+            if (replacement != null && escaped == null)
+                escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+            if (escaped != null) {
+                if (replacement != null)
+                    escaped.append(replacement);
+                else
+                    escaped.append(c);
+            }
+        }
+        return escaped == null ? text : escaped.toString();
+    }
+
+    private void write(String... parts) throws IOException {
+        for (String part : parts)
+            _out.write(part);
+    }
+}
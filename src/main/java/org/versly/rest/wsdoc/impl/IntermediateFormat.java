@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The formats that the intermediate documentation file can be written in. All of them can be read by
+ * {@link RestDocumentation#fromStream}, which tells them apart by their first few bytes.
+ */
+public enum IntermediateFormat {
+    /** The compact binary format of {@link RestDocumentationWriter}; the default. */
+    BINARY,
+
+    /** JSON, as written by {@link RestDocumentationJsonWriter}, for tools outside the JVM build. */
+    JSON,
+
+    /** The same document as {@link #JSON}, encoded as binary Smile. */
+    SMILE;
+
+    /** The number of leading bytes needed by {@link #detect}. */
+    static final int HEADER_LENGTH = 4;
+
+    private static final byte[] SMILE_HEADER = { ':', ')', '\n' };
+
+    public void write(RestDocumentation docs, OutputStream out) throws IOException {
+        write(docs, out, false);
+    }
+
+    /**
+     * Write <code>docs</code> to <code>out</code>, compressing it if <code>compressed</code> is set; only the
+     * {@link #BINARY} format supports compression.
+     */
+    public void write(RestDocumentation docs, OutputStream out, boolean compressed) throws IOException {
+        if (compressed && this != BINARY)
+            throw new UnsupportedOperationException(name().toLowerCase() + " output can't be compressed");
+        if (this == BINARY)
+            new RestDocumentationWriter(out, compressed).write(docs);
+        else
+            new RestDocumentationJsonWriter(getJsonFactory().createGenerator(out)).write(docs);
+    }
+
+    public RestDocumentation read(InputStream in) throws IOException {
+        if (this == BINARY)
+            return new RestDocumentationReader(in).read();
+        return new RestDocumentationJsonReader(getJsonFactory().createParser(in)).readAll();
+    }
+
+    /**
+     * The Jackson factory for the {@link #JSON} and {@link #SMILE} formats.
+     */
+    public JsonFactory getJsonFactory() {
+        switch (this) {
+            case JSON:
+                return new JsonFactory();
+            case SMILE:
+                return new SmileFactory();
+            default:
+                throw new UnsupportedOperationException(name().toLowerCase() + " is not a Jackson format");
+        }
+    }
+
+    /**
+     * The format of a file starting with <code>header</code>, or <code>null</code> if it is not one of these
+     * formats (e.g. a Java-serialized file from an earlier version of wsdoc).
+     */
+    static IntermediateFormat detect(byte[] header, int length) {
+        if (length >= RestDocumentationWriter.MAGIC.length && RestDocumentationReader.isBinaryFormat(header))
+            return BINARY;
+        if (length >= SMILE_HEADER.length && header[0] == SMILE_HEADER[0] && header[1] == SMILE_HEADER[1]
+                && header[2] == SMILE_HEADER[2])
+            return SMILE;
+        for (int i = 0; i < length; i++) {
+            if (!Character.isWhitespace(header[i]))
+                return header[i] == '{' ? JSON : null;
+        }
+        return null;
+    }
+
+    /**
+     * Parse a format from its (case-insensitive) name, as given on the command line.
+     */
+    public static IntermediateFormat fromString(String format) {
+        try {
+            return valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format(
+                    "unknown intermediate format '%s'; expected one of binary, json or smile", format));
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.versly.rest.wsdoc.impl;
 import java.io.Serializable;
 
 public class JsonArray implements JsonType, Serializable {
+    private static final long serialVersionUID = 6821374611702852701L;
     private JsonType elementType;
 
     public JsonArray(JsonType elementType) {
@@ -28,4 +29,8 @@ public class JsonArray implements JsonType, Serializable {
     public JsonType getElementType() {
         return elementType;
     }
+
+    void setElementType(JsonType elementType) {
+        this.elementType = elementType;
+    }
 }
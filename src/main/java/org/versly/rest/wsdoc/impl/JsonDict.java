@@ -19,6 +19,7 @@ package org.versly.rest.wsdoc.impl;
 import java.io.Serializable;
 
 public class JsonDict implements JsonType, Serializable {
+    private static final long serialVersionUID = 8506263634649614819L;
 
     private JsonType keyType;
     private JsonType valType;
@@ -35,4 +36,12 @@ public class JsonDict implements JsonType, Serializable {
     public JsonType getValueType() {
         return valType;
     }
+
+    void setKeyType(JsonType keyType) {
+        this.keyType = keyType;
+    }
+
+    void setValueType(JsonType valType) {
+        this.valType = valType;
+    }
 }
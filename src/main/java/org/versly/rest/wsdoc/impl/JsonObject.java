@@ -20,8 +20,22 @@ import java.io.Serializable;
 import java.util.*;
 
 public class JsonObject implements JsonType, Serializable {
+    private static final long serialVersionUID = 6476592076092276250L;
 
     private List<JsonField> _fields = new ArrayList();
+    private String _typeName;
+
+    /**
+     * The qualified name of the Java type this object documents, such as <code>com.example.Order</code>, or
+     * <code>null</code> if it is not known (e.g. in documentation from earlier versions of wsdoc).
+     */
+    public String getTypeName() {
+        return _typeName;
+    }
+
+    public void setTypeName(String typeName) {
+        _typeName = typeName;
+    }
 
     public <T extends JsonType> JsonField addField(String fieldName, T value) {
         JsonField<T> field = new JsonField(fieldName, value);
@@ -36,6 +50,7 @@ public class JsonObject implements JsonType, Serializable {
     }
 
     public class JsonField<T extends JsonType> implements Serializable {
+        private static final long serialVersionUID = 164721972093781943L;
 
         private String fieldName;
         private T fieldType;
@@ -54,6 +69,10 @@ public class JsonObject implements JsonType, Serializable {
             return fieldType;
         }
 
+        void setFieldType(T fieldType) {
+            this.fieldType = fieldType;
+        }
+
         public void setCommentText(String commentText) {
             this.commentText = commentText;
         }
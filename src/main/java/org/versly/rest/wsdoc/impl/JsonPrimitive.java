@@ -32,6 +32,7 @@ import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 
 public class JsonPrimitive implements JsonType, Serializable {
+    private static final long serialVersionUID = -4018222829268028804L;
 
     private static final Map<String, String> _primitiveTypeNamesByJavaTypeName = new HashMap();
 
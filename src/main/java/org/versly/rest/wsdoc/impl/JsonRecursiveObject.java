@@ -19,6 +19,7 @@ package org.versly.rest.wsdoc.impl;
 import java.io.Serializable;
 
 public class JsonRecursiveObject implements JsonType, Serializable {
+    private static final long serialVersionUID = -7561399180144973045L;
     private String recursedObjectTypeName;
 
     public JsonRecursiveObject(String recursedObjectTypeName) {
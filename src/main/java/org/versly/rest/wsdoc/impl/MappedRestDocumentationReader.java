@@ -0,0 +1,425 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Reads an indexed binary documentation file (see {@link RestDocumentationWriter}) by memory-mapping it and only
+ * decoding what is used. The APIs' properties are read up front; an API's resources are created when they are
+ * first accessed, from the index, and a resource's methods when those are first accessed. Strings and JSON types
+ * are decoded on first use. Work that only needs some of the documentation, such as excluding most resources,
+ * therefore only touches the parts of the file it needs.
+ *
+ * <p>Readers can also be given the API identifiers and doc scopes that will be documented, in which case the
+ * sections for other APIs, and the resources that have no methods in any of the scopes, are skipped using the index
+ * alone.
+ * Such resources are still linked to their parents and children, exactly as if they had been read and then removed
+ * by the assembler's scope filter.</p>
+ *
+ * <p>Compressed files can't be mapped directly; they are decompressed into memory first, after which they are read
+ * in the same way.</p>
+ */
+public class MappedRestDocumentationReader {
+    private final ByteBuffer _buffer;
+    private final Collection<String> _apiIdentifiers;
+    private final Collection<String> _scopes;
+    private int[] _stringOffsets;
+    private String[] _strings;
+    private int[] _typeOffsets;
+    private JsonType[] _types;
+
+    private MappedRestDocumentationReader(ByteBuffer buffer, Collection<String> apiIdentifiers,
+                                          Collection<String> scopes) {
+        _buffer = buffer;
+        _apiIdentifiers = apiIdentifiers;
+        _scopes = scopes == null || scopes.contains("all") ? null : scopes;
+    }
+
+    /**
+     * Read the documentation in <code>file</code>. Files in other formats, or written without an index, are
+     * read in full with {@link RestDocumentation#fromStream}.
+     */
+    public static RestDocumentation read(File file) throws IOException, ClassNotFoundException {
+        return read(file, null, (Collection<String>) null);
+    }
+
+    /**
+     * Read the documentation in <code>file</code> that is needed to document the APIs with the given identifiers
+     * (or all APIs, if <code>null</code>) in the given doc scope (or all scopes, if <code>null</code> or
+     * <code>all</code>). Other documentation may still be returned, e.g. when the file has no index.
+     */
+    public static RestDocumentation read(File file, Collection<String> apiIdentifiers, String scope)
+            throws IOException, ClassNotFoundException {
+        return read(file, apiIdentifiers, scope == null ? null : Collections.singleton(scope));
+    }
+
+    /**
+     * As {@link #read(File, Collection, String)}, for documenting several doc scopes (or all scopes, if
+     * <code>null</code> or if they include <code>all</code>) from the same documentation.
+     */
+    public static RestDocumentation read(File file, Collection<String> apiIdentifiers, Collection<String> scopes)
+            throws IOException, ClassNotFoundException {
+        ByteBuffer buffer;
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+        if (isCompressed(buffer))
+            buffer = ByteBuffer.wrap(inflate(new FileInputStream(file)));
+        if (!isIndexed(buffer))
+            return RestDocumentation.fromStream(new FileInputStream(file));
+        return new MappedRestDocumentationReader(buffer, apiIdentifiers, scopes).read();
+    }
+
+    /**
+     * As {@link #read(File, Collection, String)}, for documentation that has already been read into memory,
+     * e.g. from a WAR.
+     */
+    public static RestDocumentation read(byte[] bytes, Collection<String> apiIdentifiers, String scope)
+            throws IOException, ClassNotFoundException {
+        return read(bytes, apiIdentifiers, scope == null ? null : Collections.singleton(scope));
+    }
+
+    /**
+     * As {@link #read(byte[], Collection, String)}, for several doc scopes.
+     */
+    public static RestDocumentation read(byte[] bytes, Collection<String> apiIdentifiers, Collection<String> scopes)
+            throws IOException, ClassNotFoundException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (isCompressed(buffer))
+            buffer = ByteBuffer.wrap(inflate(new ByteArrayInputStream(bytes)));
+        if (!isIndexed(buffer))
+            return RestDocumentation.fromStream(new ByteArrayInputStream(bytes));
+        return new MappedRestDocumentationReader(buffer, apiIdentifiers, scopes).read();
+    }
+
+    private static boolean isCompressed(ByteBuffer buffer) {
+        byte[] header = new byte[Math.min(buffer.limit(), 16)];
+        buffer.duplicate().get(header);
+        return RestDocumentationReader.isCompressed(header, header.length);
+    }
+
+    /**
+     * Decompress a compressed binary file into the file it would have been without compression, keeping the
+     * header's flags so that the index offsets still match.
+     */
+    private static byte[] inflate(InputStream in) throws IOException {
+        try {
+            DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+            RestDocumentationWriter.VarintOutput out = new RestDocumentationWriter.VarintOutput();
+            byte[] magic = new byte[RestDocumentationWriter.MAGIC.length];
+            data.readFully(magic);
+            out.write(magic);
+            copyVarint(data, out); // version
+            copyVarint(data, out); // flags
+
+            DeflateBlockInputStream blocks = new DeflateBlockInputStream(data);
+            try {
+                byte[] buffer = new byte[DeflateBlockOutputStream.BLOCK_SIZE];
+                for (int n; (n = blocks.read(buffer)) >= 0; )
+                    out.write(buffer, 0, n);
+            } finally {
+                blocks.close();
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void copyVarint(DataInputStream in, RestDocumentationWriter.VarintOutput out) throws IOException {
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            out.write(b);
+        } while ((b & 0x80) != 0);
+    }
+
+    static boolean isIndexed(ByteBuffer buffer) {
+        int magicLength = RestDocumentationWriter.MAGIC.length;
+        if (buffer.limit() < magicLength + 3 + RestDocumentationWriter.TRAILER_LENGTH)
+            return false;
+        for (int i = 0; i < magicLength; i++) {
+            if (buffer.get(i) != RestDocumentationWriter.MAGIC[i]
+                    || buffer.get(buffer.limit() - magicLength + i) != RestDocumentationWriter.MAGIC[i])
+                return false;
+        }
+        Cursor cursor = new Cursor(buffer, magicLength);
+        cursor.readVarint(); // version
+        return (cursor.readVarint() & RestDocumentationWriter.FLAG_INDEXED) != 0;
+    }
+
+    private RestDocumentation read() throws IOException {
+        Cursor header = new Cursor(_buffer, RestDocumentationWriter.MAGIC.length);
+        int version = header.readVarint();
+        if (version > RestDocumentationWriter.FORMAT_VERSION)
+            throw new IOException(String.format("unsupported wsdoc documentation format version %d; expected %d or earlier",
+                    version, RestDocumentationWriter.FORMAT_VERSION));
+        int flags = header.readVarint();
+        if ((flags & ~RestDocumentationWriter.KNOWN_FLAGS) != 0)
+            throw new IOException(String.format("unsupported wsdoc documentation format flags 0x%x", flags));
+        int level = header.readVarint();
+        if (level >= ProcessingLevel.values().length)
+            throw new IOException("unknown processing level " + level);
+        RestDocumentation docs = new RestDocumentation();
+        docs.setProcessingLevel(ProcessingLevel.values()[level]);
+
+        int index = _buffer.getInt(_buffer.limit() - RestDocumentationWriter.TRAILER_LENGTH);
+        _stringOffsets = readOffsets(index);
+        _strings = new String[_stringOffsets.length];
+        index += 4 + 4 * _stringOffsets.length;
+        _typeOffsets = readOffsets(index);
+        _types = new JsonType[_typeOffsets.length];
+        index += 4 + 4 * _typeOffsets.length;
+        final int body = _buffer.getInt(index);
+
+        int apiCount = _buffer.getInt(index + 4);
+        index += 8;
+        for (int i = 0; i < apiCount; i++) {
+            String identifier = Utils.fillTemplate(getString(_buffer.getInt(index)));
+            int apiOffset = body + _buffer.getInt(index + 4);
+            List<String> apiScopes = readIndexStrings(index + 8);
+            index += 12 + 4 * apiScopes.size();
+            final int resourceCount = _buffer.getInt(index);
+            final int resourceIndex = index + 4;
+            index = resourceIndex;
+            for (int j = 0; j < resourceCount; j++)
+                index += 16 + 4 * _buffer.getInt(index + 12);
+
+            if (_apiIdentifiers != null && !_apiIdentifiers.contains(identifier))
+                continue;
+
+            Cursor cursor = new Cursor(_buffer, apiOffset);
+            RestDocumentation.RestApi api = docs.getRestApi(Utils.fillTemplate(readString(cursor)));
+            api.setMount(Utils.fillTemplate(readString(cursor)));
+            api.setApiTitle(Utils.fillTemplate(readString(cursor)));
+            api.setApiVersion(Utils.fillTemplate(readString(cursor)));
+            api.setApiDocumentation(readString(cursor));
+            List<String> traits = readStrings(cursor);
+            if (traits != null)
+                api.setTraits(RestDocumentationReader.newHashSet(traits));
+
+            // APIs outside the scopes are still read, since their properties may be merged into other inputs' APIs
+            if (isInScope(apiScopes))
+                api.setResourceLoader(loaded -> loadResources(loaded, body, resourceIndex, resourceCount));
+        }
+        return docs;
+    }
+
+    private boolean isInScope(Collection<String> scopes) {
+        return _scopes == null || !Collections.disjoint(_scopes, scopes);
+    }
+
+    private int[] readOffsets(int position) {
+        int[] offsets = new int[_buffer.getInt(position)];
+        for (int i = 0; i < offsets.length; i++)
+            offsets[i] = _buffer.getInt(position + 4 + 4 * i);
+        return offsets;
+    }
+
+    /**
+     * Read a count and that many string references from the index.
+     */
+    private List<String> readIndexStrings(int position) {
+        List<String> strings = new ArrayList<String>();
+        int count = _buffer.getInt(position);
+        for (int i = 0; i < count; i++)
+            strings.add(getString(_buffer.getInt(position + 4 + 4 * i)));
+        return strings;
+    }
+
+    private void loadResources(RestDocumentation.RestApi api, int body, int position, int resourceCount) {
+        RestDocumentation.RestApi.Resource[] resources = new RestDocumentation.RestApi.Resource[resourceCount];
+        int[] parents = new int[resourceCount];
+        for (int i = 0; i < resourceCount; i++) {
+            final int offset = body + _buffer.getInt(position);
+            String path = Utils.fillTemplate(getString(_buffer.getInt(position + 4)));
+            parents[i] = _buffer.getInt(position + 8);
+            List<String> scopes = readIndexStrings(position + 12);
+            position += 16 + 4 * scopes.size();
+
+            if (isInScope(scopes)) {
+                resources[i] = api.getResourceDocumentation(path);
+                resources[i].setMethodLoader(loaded -> loadMethods(loaded, offset));
+            } else {
+                // not part of the API, but may still be the parent of resources that are
+                resources[i] = new RestDocumentation.RestApi.Resource(path);
+            }
+        }
+        for (int i = 0; i < resourceCount; i++) {
+            if (parents[i] > 0)
+                resources[i].setParent(resources[parents[i] - 1]);
+        }
+    }
+
+    private void loadMethods(RestDocumentation.RestApi.Resource resource, int position) {
+        Cursor cursor = new Cursor(_buffer, position);
+        cursor.readVarint(); // path
+        cursor.readVarint(); // parent
+        int methodCount = cursor.readVarint();
+        for (int i = 0; i < methodCount; i++) {
+            RestDocumentation.RestApi.Resource.Method method = resource.newMethodDocumentation(readString(cursor));
+            method.setDocScopes(RestDocumentationReader.newHashSet(readStrings(cursor)));
+            method.setTraits(RestDocumentationReader.newHashSet(readStrings(cursor)));
+            method.setAuthScopes(RestDocumentationReader.newHashSet(readStrings(cursor)));
+            method.setRequestBody(readType(cursor));
+            method.setResponseBody(readType(cursor));
+            readUrlFields(cursor, method::getUrlSubstitutions);
+            readUrlFields(cursor, method::getUrlParameters);
+            method.setCommentText(readString(cursor));
+            method.setMultipartRequest(cursor.readVarint() != 0);
+            method.setRequestSchema(readString(cursor));
+            method.setResponseSchema(readString(cursor));
+            method.setRequestExample(readString(cursor));
+            method.setResponseExample(readString(cursor));
+        }
+    }
+
+    private void readUrlFields(Cursor cursor, Supplier<RestDocumentation.RestApi.Resource.UrlFields> fields) {
+        int count = cursor.readVarint();
+        for (int i = 0; i < count; i++)
+            fields.get().addField(readString(cursor), readType(cursor), readString(cursor));
+    }
+
+    private String readString(Cursor cursor) {
+        return getString(cursor.readVarint());
+    }
+
+    private List<String> readStrings(Cursor cursor) {
+        int size = cursor.readVarint();
+        if (size == 0)
+            return null;
+        List<String> strings = new ArrayList<String>(size - 1);
+        for (int i = 1; i < size; i++)
+            strings.add(readString(cursor));
+        return strings;
+    }
+
+    /**
+     * The string with the given reference (index + 1), or <code>null</code> for 0.
+     */
+    private synchronized String getString(int ref) {
+        if (ref == 0)
+            return null;
+        int index = ref - 1;
+        if (_strings[index] == null) {
+            Cursor cursor = new Cursor(_buffer, _stringOffsets[index]);
+            byte[] bytes = new byte[cursor.readVarint()];
+            ByteBuffer source = _buffer.duplicate();
+            source.position(cursor.position());
+            source.get(bytes);
+            _strings[index] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return _strings[index];
+    }
+
+    private JsonType readType(Cursor cursor) {
+        int ref = cursor.readVarint();
+        return ref == 0 ? null : getType(ref - 1);
+    }
+
+    /**
+     * Decode the type with the given index, and the types it refers to, once; types stay shared as they were
+     * when written.
+     */
+    private synchronized JsonType getType(int index) {
+        if (_types[index] != null)
+            return _types[index];
+
+        Cursor cursor = new Cursor(_buffer, _typeOffsets[index]);
+        JsonType type;
+        int tag = cursor.readVarint();
+        switch (tag) {
+            case RestDocumentationWriter.TYPE_PRIMITIVE:
+                JsonPrimitive primitive = new JsonPrimitive(readString(cursor));
+                primitive.setRestrictions(readStrings(cursor));
+                type = primitive;
+                break;
+            case RestDocumentationWriter.TYPE_OBJECT:
+            case RestDocumentationWriter.TYPE_NAMED_OBJECT:
+                JsonObject object = new JsonObject();
+                if (tag == RestDocumentationWriter.TYPE_NAMED_OBJECT)
+                    object.setTypeName(readString(cursor));
+                int fieldCount = cursor.readVarint();
+                for (int i = 0; i < fieldCount; i++)
+                    object.addField(readString(cursor), readType(cursor)).setCommentText(readString(cursor));
+                type = object;
+                break;
+            case RestDocumentationWriter.TYPE_ARRAY:
+                type = new JsonArray(readType(cursor));
+                break;
+            case RestDocumentationWriter.TYPE_DICT:
+                type = new JsonDict(readType(cursor), readType(cursor));
+                break;
+            case RestDocumentationWriter.TYPE_RECURSIVE:
+                type = new JsonRecursiveObject(readString(cursor));
+                break;
+            default:
+                throw new IllegalStateException("corrupt wsdoc documentation file: unknown JSON type tag " + tag);
+        }
+        _types[index] = type;
+        return type;
+    }
+
+    /**
+     * A read position in the mapped file. Reads use absolute offsets, so cursors over the same buffer are
+     * independent of each other.
+     */
+    private static class Cursor {
+        private final ByteBuffer _buffer;
+        private int _position;
+
+        Cursor(ByteBuffer buffer, int position) {
+            _buffer = buffer;
+            _position = position;
+        }
+
+        int position() {
+            return _position;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = _buffer.get(_position++);
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IllegalStateException("corrupt wsdoc documentation file: malformed varint at " + _position);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Writes the merged and filtered model of one API as JSON, for tools that analyse the API or generate
+ * configuration from it. The document looks like:
+ * <pre>
+ * { "wsdocModel": 1,
+ *   "api": { "identifier": ..., "mount": ..., "title": ..., "version": ..., "documentation": ..., "traits": [ ... ] },
+ *   "types": { "com.example.Order": { "kind": "object", "name": "com.example.Order", "fields": [ ... ] }, ... },
+ *   "resources": [ { "path": "/orders/{id}", "parent": "/orders", "methods": [
+ *     { "method": "GET", "key": ..., "comment": ..., "scopes": [ ... ], "traits": [ ... ], "authScopes": [ ... ],
+ *       "multipart": false, "urlSubstitutions": [ { "name": "id", "type": ..., "description": ... } ],
+ *       "urlParameters": [ ... ], "requestBody": ..., "responseBody": ..., "requestSchema": ..., "responseSchema": ...,
+ *       "requestExample": ..., "responseExample": ... } ] } ] }
+ * </pre>
+ * Types are written as <code>{ "kind": ... }</code> objects: <code>primitive</code> with a <code>name</code> and
+ * optional <code>restrictions</code>, <code>object</code> with an optional <code>name</code> and its
+ * <code>fields</code> (each with a <code>name</code>, <code>type</code> and optional <code>comment</code>),
+ * <code>array</code> with an <code>element</code>, <code>dict</code> with a <code>key</code> and a
+ * <code>value</code>, and <code>recursive</code> with the simple <code>name</code> of the object it refers back
+ * to. The named objects are defined once, in <code>types</code>, and elsewhere written as <code>{ "kind": "ref",
+ * "name": ... }</code>.
+ * <p>
+ * The output is deterministic: types are sorted by name, resources by path and methods by request method and
+ * key, and scopes and traits are sorted; fields and parameters keep the order they are declared in. Strings
+ * that are <code>null</code> are omitted, but arrays are always written.
+ */
+public class ModelJsonDocumentationWriter {
+    static final int FORMAT_VERSION = 1;
+
+    private static final Comparator<RestDocumentation.RestApi.Resource.Method> METHOD_ORDER =
+            new Comparator<RestDocumentation.RestApi.Resource.Method>() {
+                public int compare(RestDocumentation.RestApi.Resource.Method m1,
+                                   RestDocumentation.RestApi.Resource.Method m2) {
+                    int order = m1.getRequestMethod().compareTo(m2.getRequestMethod());
+                    return order != 0 ? order : m1.getKey().compareTo(m2.getKey());
+                }
+            };
+
+    private final JsonGenerator _generator;
+
+    public ModelJsonDocumentationWriter(JsonGenerator generator) {
+        _generator = generator;
+        _generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public void write(RestDocumentation.RestApi api) throws IOException {
+        _generator.writeStartObject();
+        _generator.writeNumberField("wsdocModel", FORMAT_VERSION);
+        _generator.writeObjectFieldStart("api");
+        writeString("identifier", api.getIdentifier());
+        writeString("mount", api.getMount());
+        writeString("title", api.getApiTitle());
+        writeString("version", api.getApiVersion());
+        writeString("documentation", api.getApiDocumentation());
+        writeStrings("traits", sorted(api.getTraits()));
+        _generator.writeEndObject();
+
+        _generator.writeObjectFieldStart("types");
+        for (Map.Entry<String, JsonObject> type : api.getTypeCatalog().entrySet()) {
+            _generator.writeFieldName(type.getKey());
+            writeObject(type.getValue());
+        }
+        _generator.writeEndObject();
+
+        List<RestDocumentation.RestApi.Resource> resources =
+                new ArrayList<RestDocumentation.RestApi.Resource>(api.getResources());
+        Collections.sort(resources, new Comparator<RestDocumentation.RestApi.Resource>() {
+            public int compare(RestDocumentation.RestApi.Resource r1, RestDocumentation.RestApi.Resource r2) {
+                return r1.getPath().compareTo(r2.getPath());
+            }
+        });
+        _generator.writeArrayFieldStart("resources");
+        for (RestDocumentation.RestApi.Resource resource : resources)
+            writeResource(resource);
+        _generator.writeEndArray();
+
+        _generator.writeEndObject();
+        _generator.close();
+    }
+
+    private void writeResource(RestDocumentation.RestApi.Resource resource) throws IOException {
+        _generator.writeStartObject();
+        writeString("path", resource.getPath());
+        if (resource.getParent() != null)
+            writeString("parent", resource.getParent().getPath());
+        List<RestDocumentation.RestApi.Resource.Method> methods =
+                new ArrayList<RestDocumentation.RestApi.Resource.Method>(resource.getRequestMethodDocs());
+        Collections.sort(methods, METHOD_ORDER);
+        _generator.writeArrayFieldStart("methods");
+        for (RestDocumentation.RestApi.Resource.Method method : methods)
+            writeMethod(method);
+        _generator.writeEndArray();
+        _generator.writeEndObject();
+    }
+
+    private void writeMethod(RestDocumentation.RestApi.Resource.Method method) throws IOException {
+        _generator.writeStartObject();
+        writeString("method", method.getRequestMethod());
+        writeString("key", method.getKey());
+        writeString("comment", method.getCommentText());
+        writeStrings("scopes", sorted(method.getDocScopes()));
+        writeStrings("traits", sorted(method.getTraits()));
+        writeStrings("authScopes", sorted(method.getAuthScopes()));
+        _generator.writeBooleanField("multipart", method.isMultipartRequest());
+        writeUrlFields("urlSubstitutions", method.getUrlSubstitutions());
+        writeUrlFields("urlParameters", method.getUrlParameters());
+        writeType("requestBody", method.getRequestBody());
+        writeType("responseBody", method.getResponseBody());
+        writeString("requestSchema", method.getRequestSchema());
+        writeString("responseSchema", method.getResponseSchema());
+        writeString("requestExample", method.getRequestExample());
+        writeString("responseExample", method.getResponseExample());
+        _generator.writeEndObject();
+    }
+
+    private void writeUrlFields(String name, RestDocumentation.RestApi.Resource.UrlFields fields) throws IOException {
+        _generator.writeArrayFieldStart(name);
+        for (int i = 0; i < fields.size(); i++) {
+            RestDocumentation.RestApi.Resource.UrlFields.UrlField field = fields.getField(i);
+            _generator.writeStartObject();
+            writeString("name", fields.getName(i));
+            writeType("type", field.getFieldType());
+            writeString("description", field.getFieldDescription());
+            _generator.writeEndObject();
+        }
+        _generator.writeEndArray();
+    }
+
+    private void writeType(String name, JsonType type) throws IOException {
+        if (type != null) {
+            _generator.writeFieldName(name);
+            writeType(type);
+        }
+    }
+
+    private void writeType(JsonType type) throws IOException {
+        if (type instanceof JsonObject && ((JsonObject) type).getTypeName() != null) {
+            _generator.writeStartObject();
+            _generator.writeStringField("kind", "ref");
+            _generator.writeStringField("name", ((JsonObject) type).getTypeName());
+            _generator.writeEndObject();
+        } else if (type instanceof JsonObject) {
+            writeObject((JsonObject) type);
+        } else if (type instanceof JsonPrimitive) {
+            _generator.writeStartObject();
+            _generator.writeStringField("kind", "primitive");
+            writeString("name", ((JsonPrimitive) type).getTypeName());
+            if (((JsonPrimitive) type).getRestrictions() != null)
+                writeStrings("restrictions", ((JsonPrimitive) type).getRestrictions());
+            _generator.writeEndObject();
+        } else if (type instanceof JsonArray) {
+            _generator.writeStartObject();
+            _generator.writeStringField("kind", "array");
+            writeType("element", ((JsonArray) type).getElementType());
+            _generator.writeEndObject();
+        } else if (type instanceof JsonDict) {
+            _generator.writeStartObject();
+            _generator.writeStringField("kind", "dict");
+            writeType("key", ((JsonDict) type).getKeyType());
+            writeType("value", ((JsonDict) type).getValueType());
+            _generator.writeEndObject();
+        } else if (type instanceof JsonRecursiveObject) {
+            _generator.writeStartObject();
+            _generator.writeStringField("kind", "recursive");
+            writeString("name", ((JsonRecursiveObject) type).getRecursedObjectTypeName());
+            _generator.writeEndObject();
+        } else {
+            throw new IllegalArgumentException("unsupported JSON type " + type.getClass().getName());
+        }
+    }
+
+    /**
+     * Write the definition of an object, whether named or not.
+     */
+    private void writeObject(JsonObject type) throws IOException {
+        _generator.writeStartObject();
+        _generator.writeStringField("kind", "object");
+        writeString("name", type.getTypeName());
+        _generator.writeArrayFieldStart("fields");
+        for (JsonObject.JsonField field : type.getFields()) {
+            _generator.writeStartObject();
+            writeString("name", field.getFieldName());
+            writeType("type", field.getFieldType());
+            writeString("comment", field.getCommentText());
+            _generator.writeEndObject();
+        }
+        _generator.writeEndArray();
+        _generator.writeEndObject();
+    }
+
+    private void writeString(String name, String value) throws IOException {
+        if (value != null)
+            _generator.writeStringField(name, value);
+    }
+
+    private void writeStrings(String name, Collection<String> values) throws IOException {
+        _generator.writeArrayFieldStart(name);
+        for (String value : values)
+            _generator.writeString(value);
+        _generator.writeEndArray();
+    }
+
+    /**
+     * <code>values</code> in sorted order, or none if they are <code>null</code>.
+     */
+    private static Collection<String> sorted(Collection<String> values) {
+        return values != null ? new TreeSet<String>(values) : Collections.<String>emptySet();
+    }
+}
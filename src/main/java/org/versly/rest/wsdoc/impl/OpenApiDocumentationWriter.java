@@ -0,0 +1,381 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the OpenAPI 3.0 description of an API with a Jackson {@link JsonGenerator}, so as JSON or, with a
+ * generator from {@link YamlFactory}, as YAML. It is written straight from the model as the resources are walked,
+ * without building a document tree first. The named object types of the API's {@link RestDocumentation.RestApi#getTypeCatalog type
+ * catalog} are defined once, in <code>components/schemas</code>, and referred to from the operations; other
+ * types are described inline. The API's mount is its server URL, and the paths are relative to it.
+ * <p>
+ * OpenAPI allows one operation per path and request method, so where several methods of a resource differ only
+ * in their query parameters, the first one is written. Traits, which OpenAPI has no place for, are written as an
+ * <code>x-traits</code> extension of the operation.
+ */
+public class OpenApiDocumentationWriter {
+    static final String OPENAPI_VERSION = "3.0.0";
+    private static final String SECURITY_SCHEME = "oauth_2_0";
+
+    private final JsonGenerator _generator;
+    private Map<String, String> _recursedTypeNames;
+
+    public OpenApiDocumentationWriter(JsonGenerator generator) {
+        _generator = generator;
+        _generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public void write(RestDocumentation.RestApi api) throws IOException {
+        Map<String, JsonObject> types = api.getTypeCatalog();
+        indexRecursedTypeNames(types.keySet());
+
+        _generator.writeStartObject();
+        _generator.writeStringField("openapi", OPENAPI_VERSION);
+        _generator.writeObjectFieldStart("info");
+        _generator.writeStringField("title", api.getApiTitle() != null ? api.getApiTitle() : api.getIdentifier());
+        _generator.writeStringField("version", api.getApiVersion() != null ? api.getApiVersion() : "");
+        writeString("description", api.getApiDocumentation());
+        _generator.writeEndObject();
+        if (api.getMount() != null) {
+            _generator.writeArrayFieldStart("servers");
+            _generator.writeStartObject();
+            _generator.writeStringField("url", api.getMount());
+            _generator.writeEndObject();
+            _generator.writeEndArray();
+        }
+
+        _generator.writeObjectFieldStart("paths");
+        for (RestDocumentation.RestApi.Resource resource : api.getResources()) {
+            Collection<RestDocumentation.RestApi.Resource.Method> methods = resource.getRequestMethodDocs();
+            if (methods.isEmpty())
+                continue;
+            _generator.writeObjectFieldStart(getRelativePath(resource.getPath(), api.getMount()));
+            Set<String> written = new HashSet<String>();
+            for (RestDocumentation.RestApi.Resource.Method method : methods) {
+                if (written.add(method.getRequestMethod().toLowerCase()))
+                    writeOperation(method);
+            }
+            _generator.writeEndObject();
+        }
+        _generator.writeEndObject();
+
+        _generator.writeObjectFieldStart("components");
+        if (!types.isEmpty()) {
+            _generator.writeObjectFieldStart("schemas");
+            for (Map.Entry<String, JsonObject> type : types.entrySet()) {
+                _generator.writeFieldName(getSchemaName(type.getKey()));
+                writeObjectSchema(type.getValue(), null);
+            }
+            _generator.writeEndObject();
+        }
+        _generator.writeObjectFieldStart("securitySchemes");
+        _generator.writeObjectFieldStart(SECURITY_SCHEME);
+        _generator.writeStringField("type", "oauth2");
+        _generator.writeObjectFieldStart("flows");
+        _generator.writeObjectFieldStart("authorizationCode");
+        _generator.writeStringField("authorizationUrl", "TBD");
+        _generator.writeStringField("tokenUrl", "TBD");
+        _generator.writeObjectFieldStart("scopes");
+        _generator.writeEndObject();
+        _generator.writeEndObject();
+        _generator.writeEndObject();
+        _generator.writeEndObject();
+        _generator.writeEndObject();
+        _generator.writeEndObject();
+
+        _generator.writeEndObject();
+        _generator.close();
+    }
+
+    private void writeOperation(RestDocumentation.RestApi.Resource.Method method) throws IOException {
+        _generator.writeObjectFieldStart(method.getRequestMethod().toLowerCase());
+        if (method.getCommentText() != null) {
+            // the description leaves out the javadoc tags
+            _generator.writeStringField("description", method.getCommentText().split("\n @")[0]);
+        }
+        writeStrings("x-traits", method.getTraits());
+
+        RestDocumentation.RestApi.Resource.UrlFields substitutions = method.getUrlSubstitutions();
+        RestDocumentation.RestApi.Resource.UrlFields parameters = method.getUrlParameters();
+        if (substitutions.size() > 0 || parameters.size() > 0) {
+            _generator.writeArrayFieldStart("parameters");
+            writeParameters("path", substitutions);
+            writeParameters("query", parameters);
+            _generator.writeEndArray();
+        }
+
+        if (method.getRequestBody() != null) {
+            _generator.writeObjectFieldStart("requestBody");
+            _generator.writeBooleanField("required", true);
+            writeContent(method.isMultipartRequest() ? "multipart/form-data" : "application/json",
+                    method.getRequestBody());
+            _generator.writeEndObject();
+        }
+
+        _generator.writeObjectFieldStart("responses");
+        _generator.writeObjectFieldStart("200");
+        _generator.writeStringField("description", "OK");
+        if (method.getResponseBody() != null)
+            writeContent("application/json", method.getResponseBody());
+        _generator.writeEndObject();
+        _generator.writeEndObject();
+
+        if (method.getAuthScopes() != null && !method.getAuthScopes().isEmpty()) {
+            _generator.writeArrayFieldStart("security");
+            _generator.writeStartObject();
+            writeStrings(SECURITY_SCHEME, method.getAuthScopes());
+            _generator.writeEndObject();
+            _generator.writeEndArray();
+        }
+        _generator.writeEndObject();
+    }
+
+    private void writeParameters(String in, RestDocumentation.RestApi.Resource.UrlFields fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            RestDocumentation.RestApi.Resource.UrlFields.UrlField field = fields.getField(i);
+            _generator.writeStartObject();
+            _generator.writeStringField("name", fields.getName(i));
+            _generator.writeStringField("in", in);
+            if (in.equals("path"))
+                _generator.writeBooleanField("required", true);
+            writeString("description", field.getFieldDescription());
+            _generator.writeFieldName("schema");
+            writeSchema(field.getFieldType(), null);
+            _generator.writeEndObject();
+        }
+    }
+
+    private void writeContent(String mediaType, JsonType type) throws IOException {
+        _generator.writeObjectFieldStart("content");
+        _generator.writeObjectFieldStart(mediaType);
+        _generator.writeFieldName("schema");
+        writeSchema(type, null);
+        _generator.writeEndObject();
+        _generator.writeEndObject();
+    }
+
+    /**
+     * Write the schema of <code>type</code>, with <code>description</code> if it isn't <code>null</code>.
+     */
+    private void writeSchema(JsonType type, String description) throws IOException {
+        if (type instanceof JsonObject && ((JsonObject) type).getTypeName() != null) {
+            writeReference(((JsonObject) type).getTypeName(), description);
+        } else if (type instanceof JsonObject) {
+            writeObjectSchema((JsonObject) type, description);
+        } else if (type instanceof JsonArray) {
+            startSchema(description);
+            _generator.writeStringField("type", "array");
+            _generator.writeFieldName("items");
+            writeSchema(((JsonArray) type).getElementType(), null);
+            _generator.writeEndObject();
+        } else if (type instanceof JsonDict) {
+            startSchema(description);
+            _generator.writeStringField("type", "object");
+            _generator.writeFieldName("additionalProperties");
+            writeSchema(((JsonDict) type).getValueType(), null);
+            _generator.writeEndObject();
+        } else if (type instanceof JsonRecursiveObject) {
+            String typeName = _recursedTypeNames.get(((JsonRecursiveObject) type).getRecursedObjectTypeName());
+            if (typeName != null) {
+                writeReference(typeName, description);
+            } else {
+                startSchema(description);
+                _generator.writeStringField("type", "object");
+                _generator.writeEndObject();
+            }
+        } else if (type instanceof JsonPrimitive) {
+            writePrimitiveSchema((JsonPrimitive) type, description);
+        } else {
+            // an unknown type, or none at all, may be anything
+            startSchema(description);
+            _generator.writeEndObject();
+        }
+    }
+
+    private void startSchema(String description) throws IOException {
+        _generator.writeStartObject();
+        writeString("description", description);
+    }
+
+    private void writeObjectSchema(JsonObject type, String description) throws IOException {
+        startSchema(description);
+        _generator.writeStringField("type", "object");
+        if (!type.getFields().isEmpty()) {
+            _generator.writeObjectFieldStart("properties");
+            for (JsonObject.JsonField field : type.getFields()) {
+                _generator.writeFieldName(field.getFieldName());
+                writeSchema(field.getFieldType(), field.getCommentText());
+            }
+            _generator.writeEndObject();
+        }
+        _generator.writeEndObject();
+    }
+
+    private void writePrimitiveSchema(JsonPrimitive type, String description) throws IOException {
+        startSchema(description);
+        String typeName = type.getTypeName();
+        switch (typeName) {
+            case "object":
+            case "void":
+                break;
+            case "boolean":
+                _generator.writeStringField("type", "boolean");
+                break;
+            case "byte":
+            case "short":
+            case "integer":
+                _generator.writeStringField("type", "integer");
+                _generator.writeStringField("format", "int32");
+                break;
+            case "long":
+                _generator.writeStringField("type", "integer");
+                _generator.writeStringField("format", "int64");
+                break;
+            case "float":
+            case "double":
+                _generator.writeStringField("type", "number");
+                _generator.writeStringField("format", typeName);
+                break;
+            case "url":
+                _generator.writeStringField("type", "string");
+                _generator.writeStringField("format", "uri");
+                break;
+            case "uuid":
+            case "date":
+            case "time":
+                _generator.writeStringField("type", "string");
+                _generator.writeStringField("format", typeName);
+                break;
+            case "timestamp":
+            case "datetime":
+                _generator.writeStringField("type", "string");
+                _generator.writeStringField("format", "date-time");
+                break;
+            default:
+                // strings, chars, and enums and other types serialized as strings
+                _generator.writeStringField("type", "string");
+        }
+        writeStrings("enum", type.getRestrictions());
+        _generator.writeEndObject();
+    }
+
+    private void writeReference(String typeName, String description) throws IOException {
+        // anything next to a reference is ignored, so a described reference is wrapped in an allOf
+        if (description != null) {
+            startSchema(description);
+            _generator.writeArrayFieldStart("allOf");
+        }
+        _generator.writeStartObject();
+        _generator.writeStringField("$ref", "#/components/schemas/" + getSchemaName(typeName));
+        _generator.writeEndObject();
+        if (description != null) {
+            _generator.writeEndArray();
+            _generator.writeEndObject();
+        }
+    }
+
+    /**
+     * The path of a resource relative to the server URL <code>mount</code>, or the whole path if the resource isn't
+     * under it.
+     */
+    static String getRelativePath(String path, String mount) {
+        if (mount == null)
+            return path;
+        if (mount.endsWith("/"))
+            mount = mount.substring(0, mount.length() - 1);
+        if (path.equals(mount))
+            return "/";
+        return path.startsWith(mount + "/") ? path.substring(mount.length()) : path;
+    }
+
+    /**
+     * The name of the schema of a type in <code>components/schemas</code>, which may only contain letters,
+     * digits, dots, dashes and underscores.
+     */
+    static String getSchemaName(String typeName) {
+        return typeName.replaceAll("[^A-Za-z0-9.\\-_]", "_");
+    }
+
+    /**
+     * Recursive references give the simple name of the type they refer to; find the qualified names of those
+     * that are unambiguous.
+     */
+    private void indexRecursedTypeNames(Collection<String> typeNames) {
+        _recursedTypeNames = new HashMap<String, String>();
+        Set<String> ambiguous = new HashSet<String>();
+        for (String typeName : typeNames) {
+            String simpleName = typeName.replaceAll("<.*", "");
+            simpleName = simpleName.substring(simpleName.lastIndexOf('.') + 1);
+            if (_recursedTypeNames.put(simpleName, typeName) != null)
+                ambiguous.add(simpleName);
+        }
+        _recursedTypeNames.keySet().removeAll(ambiguous);
+    }
+
+    private void writeString(String name, String value) throws IOException {
+        if (value != null)
+            _generator.writeStringField(name, value);
+    }
+
+    private void writeStrings(String name, Collection<String> values) throws IOException {
+        if (values == null)
+            return;
+        _generator.writeArrayFieldStart(name);
+        for (String value : values)
+            _generator.writeString(value);
+        _generator.writeEndArray();
+    }
+
+    /**
+     * Creates YAML generators that quote the field names that would otherwise be read back as something other than
+     * strings, such as the <code>200</code> of a response.
+     */
+    public static class YamlFactory extends YAMLFactory {
+        private static final long serialVersionUID = -1396427105510728435L;
+        private static final Resolver RESOLVER = new Resolver();
+
+        @Override
+        protected YAMLGenerator _createGenerator(Writer out, IOContext context) throws IOException {
+            return new YAMLGenerator(context, _generatorFeatures, _yamlGeneratorFeatures, _objectCodec, out, _version) {
+                @Override
+                protected void _writeScalar(String value, String type, Character style) throws IOException {
+                    // field names are the only strings written without a style
+                    if (style == null && type.equals("string")
+                            && !RESOLVER.resolve(NodeId.scalar, value, true).equals(Tag.STR))
+                        style = '"';
+                    super._writeScalar(value, type, style);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The formats that the assembler can write documentation in, each rendered either by a FreeMarker template or
+ * directly from the model by {@link #write}.
+ */
+public enum OutputFormat {
+    /** A browsable HTML page; the default. */
+    HTML("RestDocumentation.ftl", "html", ProcessingLevel.TYPES),
+
+    /** The same HTML page, written by {@link HtmlDocumentationWriter} rather than by a template. */
+    HTML_FAST(null, "html", ProcessingLevel.TYPES),
+
+    /** A RAML 0.8 description, including the JSON schemas and examples of request and response bodies. */
+    RAML("RamlDocumentation.ftl", "raml", ProcessingLevel.FULL),
+
+    /** The same RAML description, written by {@link RamlDocumentationWriter} through a YAML emitter. */
+    RAML_FAST(null, "raml", ProcessingLevel.FULL),
+
+    /** An OpenAPI 3.0 description in JSON, written by {@link OpenApiDocumentationWriter}. */
+    OPENAPI(null, "json", ProcessingLevel.TYPES),
+
+    /** The same OpenAPI description in YAML. */
+    OPENAPI_YAML(null, "yaml", ProcessingLevel.TYPES),
+
+    /** The model of the API as JSON, written by {@link ModelJsonDocumentationWriter}, for other tools to read. */
+    MODEL_JSON(null, "model.json", ProcessingLevel.FULL);
+
+    private final String _template;
+    private final String _extension;
+    private final ProcessingLevel _processingLevel;
+
+    OutputFormat(String template, String extension, ProcessingLevel processingLevel) {
+        _template = template;
+        _extension = extension;
+        _processingLevel = processingLevel;
+    }
+
+    /**
+     * The name of the template, relative to the assembler's package, or <code>null</code> if this format is
+     * written by {@link #write}.
+     */
+    public String getTemplate() {
+        return _template;
+    }
+
+    /**
+     * The file name extension of this format's output, without the leading dot.
+     */
+    public String getExtension() {
+        return _extension;
+    }
+
+    /**
+     * The processing level needed for everything this format can show.
+     */
+    public ProcessingLevel getProcessingLevel() {
+        return _processingLevel;
+    }
+
+    /**
+     * Write the documentation of <code>api</code> to <code>out</code>, for the formats without a template.
+     */
+    public void write(RestDocumentation.RestApi api, Writer out) throws IOException {
+        if (this == HTML_FAST)
+            new HtmlDocumentationWriter(out).write(api);
+        else if (this == RAML_FAST)
+            new RamlDocumentationWriter(out).write(api);
+        else if (this == OPENAPI)
+            new OpenApiDocumentationWriter(new JsonFactory().createGenerator(out).useDefaultPrettyPrinter()).write(api);
+        else if (this == OPENAPI_YAML)
+            new OpenApiDocumentationWriter(new OpenApiDocumentationWriter.YamlFactory().createGenerator(out))
+                    .write(api);
+        else if (this == MODEL_JSON)
+            new ModelJsonDocumentationWriter(new JsonFactory().createGenerator(out).useDefaultPrettyPrinter())
+                    .write(api);
+        else
+            throw new UnsupportedOperationException(this + " output is written by a template");
+    }
+
+    /**
+     * The name of this format on the command line.
+     */
+    @Override
+    public String toString() {
+        return name().toLowerCase().replace('_', '-');
+    }
+
+    /**
+     * Parse a format from its (case-insensitive) name, as given on the command line.
+     */
+    public static OutputFormat fromString(String format) {
+        try {
+            return valueOf(format.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("unknown output format '%s'; expected one of html, "
+                    + "html-fast, raml, raml-fast, openapi, openapi-yaml or model-json", format));
+        }
+    }
+}
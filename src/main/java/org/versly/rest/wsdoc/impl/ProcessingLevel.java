@@ -0,0 +1,48 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+/**
+ * How much information the annotation processor gathers. Lower levels make the processor cheaper to run, at
+ * the cost of less complete documentation; each level includes everything gathered by the levels before it.
+ */
+public enum ProcessingLevel {
+    /** Paths, request methods, URL parameters, scopes, traits and Javadoc comments. */
+    ENDPOINTS,
+
+    /** Adds the request and response body {@link JsonType} trees. */
+    TYPES,
+
+    /** Adds the JSON schemas and examples of the request and response bodies. */
+    FULL;
+
+    public boolean includes(ProcessingLevel level) {
+        return compareTo(level) >= 0;
+    }
+
+    /**
+     * Parse a level from its (case-insensitive) name, as given on the command line.
+     */
+    public static ProcessingLevel fromString(String level) {
+        try {
+            return valueOf(level.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format(
+                    "unknown processing level '%s'; expected one of endpoints, types or full", level));
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Writes the RAML 0.8 description of an API through SnakeYAML's event emitter, walking the resource tree and
+ * streaming to the output as it goes. It describes the same resources, methods, parameters and bodies as
+ * <code>RamlDocumentation.ftl</code>, but leaves quoting and indentation to the emitter, so the output is always
+ * valid YAML whatever the comments and descriptions contain.
+ */
+public class RamlDocumentationWriter {
+    private static final Resolver RESOLVER = new Resolver();
+
+    private final Writer _out;
+    private final Emitter _emitter;
+    private SchemaCatalog _schemas;
+
+    public RamlDocumentationWriter(Writer out) {
+        _out = out;
+        DumperOptions options = new DumperOptions();
+        options.setIndent(4);
+        options.setWidth(Integer.MAX_VALUE);
+        _emitter = new Emitter(out, options);
+    }
+
+    public void write(RestDocumentation.RestApi api) throws IOException {
+        // the RAML version comment comes before the document, where the emitter can't write it
+        _out.write("#%RAML 0.8\n");
+        _emitter.emit(new StreamStartEvent(null, null));
+        _emitter.emit(new DocumentStartEvent(null, null, true, null, null));
+        startMapping();
+
+        scalar("title");
+        scalar(api.getApiTitle());
+        if (api.getApiVersion() != null)
+            entry("version", api.getApiVersion());
+        if (api.getMount() != null)
+            entry("baseUri", api.getMount());
+        if (api.getApiDocumentation() != null) {
+            scalar("documentation");
+            startSequence(false);
+            startMapping();
+            entry("title", "Overview");
+            scalar("content");
+            literal(api.getApiDocumentation());
+            endMapping();
+            endSequence();
+        }
+
+        _schemas = api.getSchemaCatalog();
+        if (!_schemas.getSchemas().isEmpty()) {
+            scalar("schemas");
+            startSequence(false);
+            for (Map.Entry<String, String> schema : _schemas.getSchemas().entrySet()) {
+                startMapping();
+                scalar(schema.getKey());
+                literal(schema.getValue());
+                endMapping();
+            }
+            endSequence();
+        }
+
+        scalar("securitySchemes");
+        startSequence(false);
+        startMapping();
+        scalar("oauth_2_0");
+        startMapping();
+        entry("type", "OAuth 2.0");
+        scalar("settings");
+        startMapping();
+        entry("accessTokenUri", "TBD");
+        entry("authorizationUri", "TBD");
+        endMapping();
+        endMapping();
+        endMapping();
+        endSequence();
+
+        if (!api.getTraits().isEmpty()) {
+            scalar("traits");
+            startSequence(false);
+            for (String trait : api.getTraits()) {
+                startMapping();
+                scalar(trait);
+                startMapping();
+                entry("description", "TBD");
+                endMapping();
+                endMapping();
+            }
+            endSequence();
+        }
+
+        for (RestDocumentation.RestApi.Resource resource : api.getResources()) {
+            if (resource.getParent() == null)
+                writeResource(resource);
+        }
+
+        endMapping();
+        _emitter.emit(new DocumentEndEvent(null, null, false));
+        _emitter.emit(new StreamEndEvent(null, null));
+        _out.flush();
+    }
+
+    private void writeResource(RestDocumentation.RestApi.Resource resource) throws IOException {
+        scalar(resource.getPathLeaf());
+        startMapping();
+        writeParameters("uriParameters", resource.getResourceUrlSubstitutions());
+        for (RestDocumentation.RestApi.Resource.Method method : resource.getRequestMethodDocs())
+            writeMethod(method);
+        for (RestDocumentation.RestApi.Resource child : resource.getChildren())
+            writeResource(child);
+        endMapping();
+    }
+
+    private void writeMethod(RestDocumentation.RestApi.Resource.Method method) throws IOException {
+        scalar(method.getRequestMethod().toLowerCase());
+        startMapping();
+        if (method.getCommentText() != null) {
+            // the description leaves out the javadoc tags
+            scalar("description");
+            literal(method.getCommentText().split("\n @")[0]);
+        }
+
+        if (method.getAuthScopes() != null && !method.getAuthScopes().isEmpty()) {
+            scalar("securedBy");
+            startSequence(true);
+            startMapping(true);
+            scalar("oauth_2_0");
+            startMapping(true);
+            scalar("scopes");
+            writeStrings(method.getAuthScopes());
+            endMapping();
+            endMapping();
+            endSequence();
+        }
+
+        scalar("is");
+        writeStrings(method.getTraits() != null ? method.getTraits() : Collections.<String>emptySet());
+        writeParameters("queryParameters", method.getUrlParameters());
+        if (method.getRequestSchema() != null)
+            writeBody(method.getRequestSchema(), method.getRequestExample());
+
+        scalar("responses");
+        startMapping();
+        plain("200");
+        if (method.getResponseSchema() != null) {
+            startMapping();
+            writeBody(method.getResponseSchema(), method.getResponseExample());
+            endMapping();
+        } else {
+            plain("");
+        }
+        endMapping();
+        endMapping();
+    }
+
+    private void writeParameters(String name, RestDocumentation.RestApi.Resource.UrlFields fields)
+        throws IOException {
+        scalar(name);
+        if (fields.size() == 0) {
+            plain("");
+            return;
+        }
+        startMapping();
+        for (int i = 0; i < fields.size(); i++) {
+            RestDocumentation.RestApi.Resource.UrlFields.UrlField field = fields.getField(i);
+            scalar(fields.getName(i));
+            startMapping();
+            entry("description", field.getFieldDescription() != null ? field.getFieldDescription() : "");
+            if (field.getFieldType() instanceof JsonPrimitive) {
+                JsonPrimitive primitive = (JsonPrimitive) field.getFieldType();
+                entry("type", getRamlType(primitive.getTypeName()));
+                if (primitive.getRestrictions() != null) {
+                    scalar("enum");
+                    writeStrings(primitive.getRestrictions());
+                }
+            } else {
+                entry("type", "string");
+            }
+            endMapping();
+        }
+        endMapping();
+    }
+
+    private void writeBody(String schema, String example) throws IOException {
+        scalar("body");
+        startMapping();
+        scalar("application/json");
+        startMapping();
+        entry("schema", _schemas.getName(schema));
+        if (example != null) {
+            scalar("example");
+            literal(example.trim());
+        }
+        endMapping();
+        endMapping();
+    }
+
+    /**
+     * RAML has a limited set of types for URI and query parameters.
+     */
+    static String getRamlType(String typeName) {
+        switch (typeName) {
+            case "float":
+            case "double":
+                return "number";
+            case "integer":
+            case "long":
+            case "short":
+            case "byte":
+                return "integer";
+            case "date":
+            case "timestamp":
+            case "time":
+                return "date";
+            case "boolean":
+                return "boolean";
+            default:
+                return "string";
+        }
+    }
+
+    private void writeStrings(Collection<String> values) throws IOException {
+        startSequence(true);
+        for (String value : values)
+            scalar(value);
+        endSequence();
+    }
+
+    private void entry(String key, String value) throws IOException {
+        scalar(key);
+        scalar(value);
+    }
+
+    /**
+     * Write a string, which is quoted if it would otherwise be read as another type; <code>null</code> is written
+     * as an empty value.
+     */
+    private void scalar(String value) throws IOException {
+        if (value == null) {
+            plain("");
+            return;
+        }
+        boolean plain = RESOLVER.resolve(NodeId.scalar, value, true).equals(Tag.STR);
+        _emitter.emit(new ScalarEvent(null, null, new ImplicitTuple(plain, true), value, null, null, null));
+    }
+
+    /**
+     * Write a value as is, to be read as whatever type it looks like.
+     */
+    private void plain(String value) throws IOException {
+        _emitter.emit(new ScalarEvent(null, null, new ImplicitTuple(true, false), value, null, null, null));
+    }
+
+    /**
+     * Write a multi-line string as a literal block.
+     */
+    private void literal(String value) throws IOException {
+        _emitter.emit(new ScalarEvent(null, null, new ImplicitTuple(false, true), value, null, null, '|'));
+    }
+
+    private void startMapping() throws IOException {
+        startMapping(false);
+    }
+
+    private void startMapping(boolean flow) throws IOException {
+        _emitter.emit(new MappingStartEvent(null, null, true, null, null, flow));
+    }
+
+    private void endMapping() throws IOException {
+        _emitter.emit(new MappingEndEvent(null, null));
+    }
+
+    private void startSequence(boolean flow) throws IOException {
+        _emitter.emit(new SequenceStartEvent(null, null, true, null, null, flow));
+    }
+
+    private void endSequence() throws IOException {
+        _emitter.emit(new SequenceEndEvent(null, null));
+    }
+}
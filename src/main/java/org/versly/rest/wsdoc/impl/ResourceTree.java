@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A tree of resource paths, keyed on their <code>/</code>-separated segments, so that a resource's ancestors are
+ * the resources on the way to its node. Building the tree and each query over it take time linear in the total
+ * length of the paths.
+ *
+ * <p>A resource is an ancestor of another if its path followed by <code>/</code> starts the other's path, so
+ * <code>/a</code> is an ancestor of <code>/a/b</code> and of <code>/a//b</code>, but not of <code>/ab</code>; the
+ * segments are split accordingly, keeping empty ones.</p>
+ */
+class ResourceTree {
+    private final Node _root = new Node();
+    private int _size;
+    private RestDocumentation.RestApi.Resource _first;
+
+    ResourceTree(Collection<RestDocumentation.RestApi.Resource> resources) {
+        for (RestDocumentation.RestApi.Resource resource : resources) {
+            if (resource.getPath() == null)
+                continue;
+            Node node = _root;
+            for (String segment : resource.getPath().split("/", -1))
+                node = node.getChild(segment);
+            node._resource = resource;
+            if (_size++ == 0)
+                _first = resource;
+        }
+    }
+
+    /**
+     * Make each of the resources, in the order they were given, a child of its closest ancestor among them.
+     * Resources without an ancestor are left with no parent.
+     */
+    void linkParents(Collection<RestDocumentation.RestApi.Resource> resources) {
+        Map<RestDocumentation.RestApi.Resource, RestDocumentation.RestApi.Resource> parents =
+                new IdentityHashMap<RestDocumentation.RestApi.Resource, RestDocumentation.RestApi.Resource>();
+        collectParents(_root, null, parents);
+        for (RestDocumentation.RestApi.Resource resource : resources) {
+            RestDocumentation.RestApi.Resource parent = parents.get(resource);
+            if (parent != resource.getParent())
+                resource.setParent(parent);
+        }
+    }
+
+    private static void collectParents(Node node, RestDocumentation.RestApi.Resource ancestor,
+                                       Map<RestDocumentation.RestApi.Resource, RestDocumentation.RestApi.Resource> parents) {
+        if (node._resource != null) {
+            parents.put(node._resource, ancestor);
+            ancestor = node._resource;
+        }
+        if (node._children != null) {
+            for (Node child : node._children.values())
+                collectParents(child, ancestor, parents);
+        }
+    }
+
+    /**
+     * The path made of the non-empty segments that all the resources' paths start with, or the only resource's
+     * path if there is just one, or <code>null</code> if there are none.
+     */
+    String getCommonPath() {
+        if (_size <= 1)
+            return _first == null ? null : _first.getPath();
+        StringBuilder commonPath = new StringBuilder();
+        Node node = _root;
+        while (node._resource == null && node._children != null && node._children.size() == 1) {
+            Map.Entry<String, Node> child = node._children.entrySet().iterator().next();
+            if (child.getKey().length() > 0)
+                commonPath.append('/').append(child.getKey());
+            node = child.getValue();
+        }
+        return commonPath.toString();
+    }
+
+    private static class Node {
+        private Map<String, Node> _children;
+        private RestDocumentation.RestApi.Resource _resource;
+
+        Node getChild(String segment) {
+            if (_children == null)
+                _children = new HashMap<String, Node>(4);
+            Node child = _children.get(segment);
+            if (child == null)
+                _children.put(segment, child = new Node());
+            return child;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A read-only, filtered view of a {@link RestDocumentation.RestApi}, as returned by
+ * {@link RestDocumentation.RestApi#filter(Iterable, String)}. Resources and methods are wrapped rather than copied,
+ * and are only wrapped when first used. Only the view's mount can be changed, without changing the underlying API.
+ */
+class RestApiView extends RestDocumentation.RestApi {
+    private static final long serialVersionUID = -597647624050827625L;
+
+    private final RestDocumentation.RestApi _api;
+    private final Iterable<Pattern> _excludePatterns;
+    private final String _scope;
+    private final ScopeIndex _scopeIndex;
+    private final Map<RestDocumentation.RestApi.Resource, ResourceView> _views =
+            new IdentityHashMap<RestDocumentation.RestApi.Resource, ResourceView>();
+    private String _mount;
+    private List<RestDocumentation.RestApi.Resource> _resources;
+
+    RestApiView(RestDocumentation.RestApi api, Iterable<Pattern> excludePatterns, String scope) {
+        super(api.getIdentifier());
+        _api = api;
+        _excludePatterns = excludePatterns;
+        _scope = "all".equals(scope) ? null : scope;
+        _scopeIndex = _scope == null ? null : api.getScopeIndex();
+    }
+
+    @Override
+    public String getMount() {
+        if (_mount != null)
+            return _mount;
+        // like setMount, a blank mount is no mount at all; older intermediate files fill an unset one to ""
+        String mount = _api.getMount();
+        return mount != null && !mount.trim().isEmpty() ? mount : null;
+    }
+
+    @Override
+    public void setMount(String apiBaseUrl) {
+        if (null != apiBaseUrl && !apiBaseUrl.trim().isEmpty()) {
+            _mount = apiBaseUrl;
+        }
+    }
+
+    @Override
+    public String getApiTitle() {
+        return _api.getApiTitle();
+    }
+
+    @Override
+    public void setApiTitle(String apiTitle) {
+        throw readOnly();
+    }
+
+    @Override
+    public String getApiVersion() {
+        return _api.getApiVersion();
+    }
+
+    @Override
+    public void setApiVersion(String apiVersion) {
+        throw readOnly();
+    }
+
+    @Override
+    public String getApiDocumentation() {
+        return _api.getApiDocumentation();
+    }
+
+    @Override
+    public void setApiDocumentation(String apiDocumentation) {
+        throw readOnly();
+    }
+
+    @Override
+    public Set<String> getTraits() {
+        return _api.getTraits();
+    }
+
+    @Override
+    public void setTraits(HashSet<String> traits) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addTraits(Collection<String> traits) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized Collection<RestDocumentation.RestApi.Resource> getResources() {
+        if (_resources == null) {
+            List<RestDocumentation.RestApi.Resource> resources = new ArrayList<RestDocumentation.RestApi.Resource>();
+            for (RestDocumentation.RestApi.Resource resource : _api.getResources()) {
+                if (!isExcluded(resource.getPath()) && hasMethodsInScope(resource))
+                    resources.add(view(resource));
+            }
+            _resources = Collections.unmodifiableList(resources);
+        }
+        return _resources;
+    }
+
+    @Override
+    public void merge(RestDocumentation.RestApi api) {
+        throw readOnly();
+    }
+
+    @Override
+    public RestDocumentation.RestApi.Resource getResourceDocumentation(String path) {
+        for (RestDocumentation.RestApi.Resource resource : getResources()) {
+            if (resource.getPath().equals(path))
+                return resource;
+        }
+        throw readOnly();
+    }
+
+    private boolean hasMethodsInScope(RestDocumentation.RestApi.Resource resource) {
+        if (_scope == null)
+            return true;
+        Boolean indexed = _scopeIndex.hasMethodsInScope(resource, _scope);
+        return indexed != null ? indexed : !view(resource).getRequestMethodDocs().isEmpty();
+    }
+
+    private boolean isExcluded(String path) {
+        if (_excludePatterns != null) {
+            for (Pattern excludePattern : _excludePatterns) {
+                if (excludePattern.matcher(path).matches())
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The view of <code>resource</code>, which need not be one of this view's resources; parents and children are
+     * viewed too, so that the hierarchy is the same as the underlying API's.
+     */
+    private synchronized ResourceView view(RestDocumentation.RestApi.Resource resource) {
+        if (resource == null)
+            return null;
+        ResourceView view = _views.get(resource);
+        if (view == null) {
+            view = new ResourceView(resource);
+            _views.put(resource, view);
+        }
+        return view;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("filtered APIs are read-only");
+    }
+
+    private class ResourceView extends RestDocumentation.RestApi.Resource {
+        private static final long serialVersionUID = -4139210970688697644L;
+
+        private final RestDocumentation.RestApi.Resource _resource;
+        private List<Method> _methods;
+        private List<RestDocumentation.RestApi.Resource> _children;
+
+        ResourceView(RestDocumentation.RestApi.Resource resource) {
+            super(resource.getPath());
+            _resource = resource;
+        }
+
+        @Override
+        public synchronized Collection<Method> getRequestMethodDocs() {
+            if (_methods == null) {
+                if (_scope == null)
+                    return _resource.getRequestMethodDocs();
+                // resources outside the indexed API, such as parents from other inputs, are checked directly
+                BitSet inScope = _scopeIndex.getMethodsInScope(_resource, _scope);
+                List<Method> methods = new ArrayList<Method>(1);
+                int position = 0;
+                for (Method method : _resource.getRequestMethodDocs()) {
+                    if (inScope != null ? inScope.get(position++)
+                            : method.getDocScopes() != null && method.getDocScopes().contains(_scope))
+                        methods.add(method);
+                }
+                _methods = Collections.unmodifiableList(methods);
+            }
+            return _methods;
+        }
+
+        @Override
+        public RestDocumentation.RestApi.Resource getParent() {
+            return view(_resource.getParent());
+        }
+
+        @Override
+        public synchronized Collection<RestDocumentation.RestApi.Resource> getChildren() {
+            if (_children == null) {
+                List<RestDocumentation.RestApi.Resource> children =
+                        new ArrayList<RestDocumentation.RestApi.Resource>();
+                for (RestDocumentation.RestApi.Resource child : _resource.getChildren())
+                    children.add(view(child));
+                _children = Collections.unmodifiableList(children);
+            }
+            return _children;
+        }
+
+        @Override
+        public Method newMethodDocumentation(String meth) {
+            throw readOnly();
+        }
+    }
+}
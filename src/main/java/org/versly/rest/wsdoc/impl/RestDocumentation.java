@@ -21,6 +21,7 @@ import org.versly.rest.wsdoc.DocumentationRestApi;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 public class RestDocumentation implements Serializable {
@@ -28,6 +29,7 @@ public class RestDocumentation implements Serializable {
     public static final String DEFAULT_API = "default";
 
     private Map<String, RestApi> _apis = new LinkedHashMap();
+    private ProcessingLevel _processingLevel;
 
     public RestApi getRestApi(String apiBaseUrl) {
         if (!_apis.containsKey(apiBaseUrl))
@@ -39,26 +41,70 @@ public class RestDocumentation implements Serializable {
         return _apis.values();
     }
 
+    /**
+     * The level at which the annotation processor gathered this documentation. Documentation written before
+     * processing levels were introduced is always complete.
+     */
+    public ProcessingLevel getProcessingLevel() {
+        return _processingLevel == null ? ProcessingLevel.FULL : _processingLevel;
+    }
+
+    public void setProcessingLevel(ProcessingLevel processingLevel) {
+        _processingLevel = processingLevel;
+    }
+
+    /**
+     * Add the APIs of <code>docs</code> after these, merging each API into the one here with the same identifier
+     * if there is one, and return this instance. The processing level becomes the lower of the two.
+     */
+    public RestDocumentation merge(RestDocumentation docs) {
+        for (RestApi api : docs.getApis()) {
+            RestApi existing = _apis.get(api.getIdentifier());
+            if (existing == null)
+                _apis.put(api.getIdentifier(), api);
+            else
+                existing.merge(api);
+        }
+        if (!docs.getProcessingLevel().includes(getProcessingLevel()))
+            _processingLevel = docs.getProcessingLevel();
+        return this;
+    }
+
     /**
      * Read and return a serialized {@link RestDocumentation} instance from <code>in</code>,
-     * as serialized by {@link #toStream}.
+     * as serialized by {@link #toStream} in any of the {@link IntermediateFormat}s. Files written
+     * with Java serialization by earlier versions of wsdoc are still accepted.
      */
     public static RestDocumentation fromStream(InputStream in)
             throws IOException, ClassNotFoundException {
-        ObjectInputStream ois = null;
         try {
-            ois = new ObjectInputStream(in);
-            return (RestDocumentation) ois.readObject();
+            BufferedInputStream buffered = new BufferedInputStream(in);
+            buffered.mark(IntermediateFormat.HEADER_LENGTH);
+            byte[] header = new byte[IntermediateFormat.HEADER_LENGTH];
+            int length = Math.max(0, buffered.read(header));
+            buffered.reset();
+            IntermediateFormat format = IntermediateFormat.detect(header, length);
+            if (format != null)
+                return format.read(buffered);
+            return (RestDocumentation) new ObjectInputStream(buffered).readObject();
         } finally {
-            if (ois != null)
-                ois.close();
+            in.close();
         }
     }
 
+    /**
+     * Write this instance to <code>out</code> in the {@link IntermediateFormat#BINARY} format.
+     */
     public void toStream(OutputStream out) throws IOException {
-        ObjectOutputStream oos = new ObjectOutputStream(out);
-        oos.writeObject(this);
-        oos.flush();
+        toStream(out, IntermediateFormat.BINARY);
+    }
+
+    public void toStream(OutputStream out, IntermediateFormat format) throws IOException {
+        format.write(this, out);
+    }
+
+    public void toStream(OutputStream out, IntermediateFormat format, boolean compressed) throws IOException {
+        format.write(this, out, compressed);
     }
 
     /**
@@ -71,22 +117,22 @@ public class RestDocumentation implements Serializable {
             if (null != mount && mount.length() > 0) {
                 api.getResourceDocumentation(api.getMount());
             }
-            for (RestApi.Resource visitor : api.getResources()) {
-                for (RestApi.Resource visitee : api.getResources()) {
-                    if (visitee != visitor && visitee.path.startsWith(visitor.path + "/") &&
-                            (visitee._parent == null || visitee._parent.path.length() < visitor.path.length())) {
-                        if (visitee._parent != null) {
-                            visitee._parent._children.remove(visitee);
-                        }
-                        visitee._parent = visitor;
-                        visitor._children.add(visitee);
-                    }
-                }
-            }
+            api.linkResources();
+            api.internTypes();
         }
     }
-    
-    public class RestApi implements Serializable {
+
+    /**
+     * The APIs, resources and methods below are static nested classes, so that they don't hold references to their
+     * enclosing instances, and store their collections compactly: most methods have no URL fields and only a few
+     * doc scopes, traits and authorization scopes, and most resources have only a few methods. Their Java
+     * serialization form is unchanged, so files written by earlier versions of wsdoc can still be read.
+     *
+     * <p>Their collections are read-only to callers, and once loaded they are not modified while rendering:
+     * {@link RestApi#filter} returns a view that leaves the underlying API untouched, so one loaded model can be
+     * filtered and rendered any number of times.</p>
+     */
+    public static class RestApi implements Serializable {
         private static final long serialVersionUID = 5665219205108618731L;
         public static final String DEFAULT_IDENTIFIER = "(default)";
         
@@ -97,6 +143,10 @@ public class RestDocumentation implements Serializable {
         private String _apiVersion;
         private String _apiDocumentation;
         private HashSet<String> _traits = new HashSet<String>();
+        private transient Consumer<RestApi> _resourceLoader;
+        private transient ScopeIndex _scopeIndex;
+        private transient SortedMap<String, JsonObject> _typeCatalog;
+        private transient SchemaCatalog _schemaCatalog;
 
         public RestApi(String identifier) {
             _identifier = identifier;
@@ -156,24 +206,29 @@ public class RestDocumentation implements Serializable {
         }
 
         public String getIndentedApiDocumentationText(int indent) {
-            if (_apiDocumentation != null) {
+            String apiDocumentation = getApiDocumentation();
+            if (apiDocumentation != null) {
                 String whitespace = StringUtils.leftPad("", indent);
-                return whitespace + _apiDocumentation.replaceAll("\n", "\n" + whitespace);
+                return whitespace + apiDocumentation.replaceAll("\n", "\n" + whitespace);
             }
             return "";
         }
 
-        public HashSet<String> getTraits() {
-            return _traits;
+        public Set<String> getTraits() {
+            return Collections.unmodifiableSet(_traits);
         }
 
         public void setTraits(HashSet<String> traits) {
             this._traits = traits;
         }
 
+        public void addTraits(Collection<String> traits) {
+            _traits.addAll(traits);
+        }
+
         public String getIndentedApiTraits(int indent) {
             StringBuilder retval = new StringBuilder();
-            for (String trait : _traits) {
+            for (String trait : getTraits()) {
                 retval.append(StringUtils.leftPad("", indent));
                 retval.append("- ");
                 retval.append(trait);
@@ -185,7 +240,35 @@ public class RestDocumentation implements Serializable {
         }
     
         public Collection<Resource> getResources() {
-            return _resources.values();
+            loadResources();
+            return Collections.unmodifiableCollection(_resources.values());
+        }
+
+        /**
+         * Defer creating this API's resources until they are first needed, as done by
+         * {@link MappedRestDocumentationReader}.
+         */
+        void setResourceLoader(Consumer<RestApi> resourceLoader) {
+            _resourceLoader = resourceLoader;
+            _scopeIndex = null;
+        }
+
+        /**
+         * The index of this API's methods by doc scope, built on first use. It is rebuilt when resources are
+         * added to the API, but not when methods or their scopes change, which they don't once the API is loaded.
+         */
+        synchronized ScopeIndex getScopeIndex() {
+            if (_scopeIndex == null)
+                _scopeIndex = new ScopeIndex(this);
+            return _scopeIndex;
+        }
+
+        private synchronized void loadResources() {
+            if (_resourceLoader != null) {
+                Consumer<RestApi> resourceLoader = _resourceLoader;
+                _resourceLoader = null;
+                resourceLoader.accept(this);
+            }
         }
 
         public void merge(RestApi api) {
@@ -201,41 +284,112 @@ public class RestDocumentation implements Serializable {
             if (null == _apiDocumentation || _apiDocumentation.trim().isEmpty()) {
                 _apiDocumentation = api.getApiDocumentation();
             }
+            loadResources();
+            api.loadResources();
+            // a resource replaced by the other API's resource at the same path would stay its parent's child
+            for (Map.Entry<String, Resource> entry : api._resources.entrySet()) {
+                Resource replaced = _resources.get(entry.getKey());
+                if (replaced != null && replaced != entry.getValue())
+                    replaced.setParent(null);
+            }
             _resources.putAll(api._resources);
             _traits.addAll(api._traits);
+            _scopeIndex = null;
+
+            // resources from either API may be the closest ancestors of the other's
+            linkResources();
+            // and both may have their own copies of the same types
+            internTypes();
+        }
+
+        /**
+         * Make each resource a child of the closest resource whose path, followed by <code>/</code>, starts its
+         * own path.
+         */
+        void linkResources() {
+            Collection<Resource> resources = getResources();
+            new ResourceTree(resources).linkParents(resources);
+        }
+
+        /**
+         * Compute the values that the templates derive from each resource and method, such as the URL
+         * substitutions of resources and the anchors of methods, once rather than on every use. This is done once
+         * the API is complete, after merging and filtering; later changes to the API are not reflected in them.
+         */
+        public void precomputeDerivedValues() {
+            for (Resource resource : getResources())
+                resource.precomputeDerivedValues();
+            _typeCatalog = TypeCatalog.collect(getResources());
+            _schemaCatalog = new SchemaCatalog(getResources());
+        }
+
+        /**
+         * Make the methods' uses of each named type refer to one {@link JsonObject}.
+         */
+        void internTypes() {
+            TypeCatalog.intern(getResources());
+        }
+
+        /**
+         * The named object types used by this API's methods, by qualified name, sorted by name.
+         */
+        public SortedMap<String, JsonObject> getTypeCatalog() {
+            return _typeCatalog != null ? _typeCatalog : TypeCatalog.collect(getResources());
+        }
+
+        /**
+         * The distinct JSON schemas of this API's request and response bodies, by name.
+         */
+        public SchemaCatalog getSchemaCatalog() {
+            return _schemaCatalog != null ? _schemaCatalog : new SchemaCatalog(getResources());
+        }
+
+        /**
+         * The longest path that all the resources' paths start with, as a series of whole segments, or the
+         * resource's path if there is only one.
+         */
+        public String getCommonResourcePath() {
+            return new ResourceTree(getResources()).getCommonPath();
         }
         
         public Resource getResourceDocumentation(String path) {
-            if (!_resources.containsKey(path))
+            loadResources();
+            if (!_resources.containsKey(path)) {
                 _resources.put(path, new Resource(path));
+                _scopeIndex = null;
+            }
             return _resources.get(path);
         }
 
         public RestApi filter(Iterable<Pattern> excludePatterns) {
-            RestApi filtered = new RestApi(_identifier);
-            filtered.setMount(_apiMount);
-            filtered.setApiTitle(_apiTitle);
-            filtered.setApiVersion(_apiVersion);
-            filtered.setApiDocumentation(_apiDocumentation);
-            filtered.setTraits(_traits);
-            OUTER:
-            for (Map.Entry<String, Resource> entry : _resources.entrySet()) {
-                for (Pattern excludePattern : excludePatterns)
-                    if (excludePattern.matcher(entry.getKey()).matches())
-                        continue OUTER;
-
-                filtered._resources.put(entry.getKey(), entry.getValue());
-            }
-            return filtered;
+            return filter(excludePatterns, null);
+        }
+
+        /**
+         * A read-only view of this API without the resources matching <code>excludePatterns</code> (if not
+         * <code>null</code>), and without the methods outside <code>scope</code> (unless it is <code>null</code>
+         * or <code>all</code>) or the resources left without methods. Nothing is copied, and this API is not
+         * modified. The view's mount can be changed without changing this API's.
+         */
+        public RestApi filter(Iterable<Pattern> excludePatterns, String scope) {
+            return new RestApiView(this, excludePatterns, scope);
         }
         
-        public class Resource implements Serializable {
+        public static class Resource implements Serializable {
             private static final long serialVersionUID = -3436348850301436626L;
+            private static final ObjectStreamField[] serialPersistentFields = {
+                    new ObjectStreamField("path", String.class),
+                    new ObjectStreamField("_methods", Map.class),
+                    new ObjectStreamField("_parent", Resource.class),
+                    new ObjectStreamField("_children", Collection.class) };
 
             private String path;
-            private Map<String, Method> _methods = new LinkedHashMap();
+            private List<Method> _methods = Collections.emptyList();
             private Resource _parent;
-            private Collection<Resource> _children = new LinkedList<Resource>();
+            private List<Resource> _children = Collections.emptyList();
+            private transient Consumer<Resource> _methodLoader;
+            private transient List<Method> _sortedMethods;
+            private transient UrlFields _resourceUrlSubstitutions;
 
             public Resource(String path) {
                 this.path = path;
@@ -246,21 +400,48 @@ public class RestDocumentation implements Serializable {
             }
 
             public Collection<Method> getRequestMethodDocs() {
-                return _methods.values();
+                loadMethods();
+                return Collections.unmodifiableList(_methods);
+            }
+
+            /**
+             * Defer reading this resource's methods until they are first needed, as done by
+             * {@link MappedRestDocumentationReader}.
+             */
+            void setMethodLoader(Consumer<Resource> methodLoader) {
+                _methodLoader = methodLoader;
+            }
+
+            private synchronized void loadMethods() {
+                if (_methodLoader != null) {
+                    Consumer<Resource> methodLoader = _methodLoader;
+                    _methodLoader = null;
+                    methodLoader.accept(this);
+                }
             }
 
             public Resource getParent() {
                 return _parent;
             }
 
-            ;
+            void setParent(Resource parent) {
+                if (_parent != null)
+                    _parent._children.remove(this);
+                _parent = parent;
+                if (parent != null) {
+                    if (parent._children.isEmpty())
+                        parent._children = new ArrayList<Resource>(2);
+                    parent._children.add(this);
+                }
+            }
 
             public String getPathLeaf() {
-                return (_parent != null) ? path.substring(_parent.path.length()) : path;
+                Resource parent = getParent();
+                return (parent != null) ? path.substring(parent.getPath().length()) : path;
             }
 
             public Collection<Resource> getChildren() {
-                return _children;
+                return Collections.unmodifiableList(_children);
             }
 
             /**
@@ -270,37 +451,134 @@ public class RestDocumentation implements Serializable {
              * will be returned.
              */
             public Method newMethodDocumentation(String meth) {
-                if (_methods.containsKey(meth)) {
-                    return _methods.get(meth);
-                }
-                Method method = new Method(meth);
-                _methods.put(meth, method);
+                loadMethods();
+                for (Method method : _methods) {
+                    if (method._meth.equals(meth))
+                        return method;
+                }
+                Method method = new Method(this, meth);
+                if (_methods.isEmpty())
+                    _methods = new ArrayList<Method>(1);
+                _methods.add(method);
                 return method;
             }
 
+            /**
+             * This resource's methods, sorted by request method.
+             */
+            public List<Method> getSortedRequestMethodDocs() {
+                return _sortedMethods != null ? _sortedMethods : sortRequestMethodDocs();
+            }
+
+            private List<Method> sortRequestMethodDocs() {
+                List<Method> methods = new ArrayList<Method>(getRequestMethodDocs());
+                Collections.sort(methods, new Comparator<Method>() {
+                    public int compare(Method m1, Method m2) {
+                        return m1._meth.compareTo(m2._meth);
+                    }
+                });
+                return Collections.unmodifiableList(methods);
+            }
+
             public UrlFields getResourceUrlSubstitutions() {
+                return _resourceUrlSubstitutions != null ? _resourceUrlSubstitutions : aggregateUrlSubstitutions();
+            }
+
+            private UrlFields aggregateUrlSubstitutions() {
                 UrlFields aggregateUrlFields = new UrlFields();
-                for (Method method : _methods.values()) {
-                    UrlFields fields = method.getMethodSpecificUrlSubstitutions();
-                    aggregateUrlFields.getFields().putAll(fields.getFields());
-                }
+                for (Method method : getRequestMethodDocs())
+                    aggregateUrlFields.addFields(getMethodSpecificUrlSubstitutions(method));
                 return aggregateUrlFields;
             }
 
+            /**
+             * See {@link RestApi#precomputeDerivedValues()}. The values are stored on this instance, so a filtered
+             * view of a resource has its own.
+             */
+            void precomputeDerivedValues() {
+                _sortedMethods = sortRequestMethodDocs();
+                _resourceUrlSubstitutions = aggregateUrlSubstitutions().readOnly();
+                for (Method method : getRequestMethodDocs())
+                    method.precomputeDerivedValues();
+            }
+
+            /**
+             * The URL substitutions of <code>method</code> (one of this resource's methods) that aren't also
+             * substitutions of the methods of this resource's ancestors.
+             */
+            UrlFields getMethodSpecificUrlSubstitutions(Method method) {
+                Map<String, UrlFields.UrlField> methodFields = new HashMap<String, UrlFields.UrlField>(
+                        method.getUrlSubstitutions().getFields());
+                for (Resource parent = getParent(); parent != null; parent = parent.getParent()) {
+                    for (Method parentMethod : parent.getRequestMethodDocs()) {
+                        if (parentMethod._urlSubstitutions != null)
+                            parentMethod._urlSubstitutions.removeFrom(methodFields);
+                    }
+                }
+                UrlFields urlFields = new UrlFields();
+                for (Map.Entry<String, UrlFields.UrlField> entry : methodFields.entrySet())
+                    urlFields.put(entry.getKey(), entry.getValue());
+                return urlFields;
+            }
+
             private Object readResolve() throws ObjectStreamException {
                 path = Utils.fillTemplate(path);
                 return this;
             }
 
-            public class Method implements Serializable {
+            private void writeObject(ObjectOutputStream out) throws IOException {
+                Map<String, Method> methods = new LinkedHashMap<String, Method>();
+                for (Method method : getRequestMethodDocs())
+                    methods.put(method._meth, method);
+                ObjectOutputStream.PutField fields = out.putFields();
+                fields.put("path", path);
+                fields.put("_methods", methods);
+                fields.put("_parent", _parent);
+                fields.put("_children", new LinkedList<Resource>(_children));
+                out.writeFields();
+            }
+
+            @SuppressWarnings("unchecked")
+            private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+                ObjectInputStream.GetField fields = in.readFields();
+                path = (String) fields.get("path", null);
+                Map<String, Method> methods = (Map<String, Method>) fields.get("_methods", null);
+                _methods = methods == null || methods.isEmpty()
+                        ? Collections.<Method>emptyList() : new ArrayList<Method>(methods.values());
+                for (Method method : _methods)
+                    method._resource = this;
+                _parent = (Resource) fields.get("_parent", null);
+                Collection<Resource> children = (Collection<Resource>) fields.get("_children", null);
+                _children = children == null || children.isEmpty()
+                        ? Collections.<Resource>emptyList() : new ArrayList<Resource>(children);
+            }
 
+            public static class Method implements Serializable {
+                private static final long serialVersionUID = -2271575535673154472L;
+                private static final ObjectStreamField[] serialPersistentFields = {
+                        new ObjectStreamField("_meth", String.class),
+                        new ObjectStreamField("_docScopes", HashSet.class),
+                        new ObjectStreamField("_traits", HashSet.class),
+                        new ObjectStreamField("_authScopes", HashSet.class),
+                        new ObjectStreamField("_requestBody", JsonType.class),
+                        new ObjectStreamField("_urlSubstitutions", UrlFields.class),
+                        new ObjectStreamField("_urlParameters", UrlFields.class),
+                        new ObjectStreamField("_responseBody", JsonType.class),
+                        new ObjectStreamField("_commentText", String.class),
+                        new ObjectStreamField("_isMultipartRequest", boolean.class),
+                        new ObjectStreamField("_requestSchema", String.class),
+                        new ObjectStreamField("_responseSchema", String.class),
+                        new ObjectStreamField("_responseExample", String.class),
+                        new ObjectStreamField("_requestExample", String.class) };
+
+                private Resource _resource;
                 private String _meth;
-                private HashSet<String> _docScopes;
-                private HashSet<String> _traits;
-                private HashSet<String> _authScopes;
+                private Set<String> _docScopes;
+                private Set<String> _traits;
+                private Set<String> _authScopes;
                 private JsonType _requestBody;
-                private UrlFields _urlSubstitutions = new UrlFields();
-                private UrlFields _urlParameters = new UrlFields();
+                private UrlFields _urlSubstitutions;
+                private UrlFields _urlParameters;
                 private JsonType _responseBody;
                 private String _commentText;
                 private boolean _isMultipartRequest;
@@ -308,16 +586,18 @@ public class RestDocumentation implements Serializable {
                 private String _responseSchema;
                 private String _responseExample;
                 private String _requestExample;
+                private transient String _key;
+                private transient UrlFields _methodSpecificUrlSubstitutions;
 
-                public HashSet<String> getDocScopes() {
+                public Set<String> getDocScopes() {
                     return _docScopes;
                 }
 
-                public void setDocScopes(HashSet<String> scopes) {
-                    this._docScopes = scopes;
+                public void setDocScopes(Collection<String> scopes) {
+                    this._docScopes = StringSet.copyOf(scopes);
                 }
 
-                public HashSet<String> getTraits() {
+                public Set<String> getTraits() {
                     return _traits;
                 }
 
@@ -330,11 +610,11 @@ public class RestDocumentation implements Serializable {
                     return sb.toString();
                 }
 
-                public void setTraits(HashSet<String> traits) {
-                    this._traits = traits;
+                public void setTraits(Collection<String> traits) {
+                    this._traits = StringSet.copyOf(traits);
                 }
 
-                public HashSet<String> getAuthScopes() {
+                public Set<String> getAuthScopes() {
                     return _authScopes;
                 }
 
@@ -358,8 +638,8 @@ public class RestDocumentation implements Serializable {
                     return null;
                 }
                 
-                public void setAuthScopes(HashSet<String> _authScopes) {
-                    this._authScopes = _authScopes;
+                public void setAuthScopes(Collection<String> _authScopes) {
+                    this._authScopes = StringSet.copyOf(_authScopes);
                 }
 
                 public String getResponseSchema() {
@@ -394,7 +674,8 @@ public class RestDocumentation implements Serializable {
                     return _requestExample;
                 }
 
-                public Method(String meth) {
+                Method(Resource resource, String meth) {
+                    this._resource = resource;
                     this._meth = meth;
                 }
 
@@ -410,7 +691,20 @@ public class RestDocumentation implements Serializable {
                     _requestBody = body;
                 }
 
+                /**
+                 * The URL substitutions of this method, created on first use.
+                 */
                 public UrlFields getUrlSubstitutions() {
+                    if (_urlSubstitutions == null)
+                        _urlSubstitutions = new UrlFields();
+                    return _urlSubstitutions;
+                }
+
+                /**
+                 * The URL substitutions of this method, or <code>null</code> if it has none yet; unlike
+                 * {@link #getUrlSubstitutions}, this doesn't create them.
+                 */
+                UrlFields peekUrlSubstitutions() {
                     return _urlSubstitutions;
                 }
 
@@ -420,23 +714,23 @@ public class RestDocumentation implements Serializable {
                  * @return
                  */
                 public UrlFields getMethodSpecificUrlSubstitutions() {
-                    Resource parent = _parent;
-                    Map<String, UrlFields.UrlField> methodFields = new HashMap<String, UrlFields.UrlField>(_urlSubstitutions.getFields());
-                    while (parent != null) {
-                        Iterator<Method> iter = parent.getRequestMethodDocs().iterator();
-                        while (iter.hasNext()) {
-                            for (String key : iter.next()._urlSubstitutions.getFields().keySet()) {
-                                methodFields.remove(key);
-                            }
-                        }
-                        parent = parent._parent;
-                    }
-                    UrlFields urlFields = new UrlFields();
-                    urlFields.getFields().putAll(methodFields);
-                    return urlFields;
+                    return _methodSpecificUrlSubstitutions != null
+                            ? _methodSpecificUrlSubstitutions : _resource.getMethodSpecificUrlSubstitutions(this);
                 }
 
+                /**
+                 * The URL parameters of this method, created on first use.
+                 */
                 public UrlFields getUrlParameters() {
+                    if (_urlParameters == null)
+                        _urlParameters = new UrlFields();
+                    return _urlParameters;
+                }
+
+                /**
+                 * The URL parameters of this method, or <code>null</code> if it has none yet.
+                 */
+                UrlFields peekUrlParameters() {
                     return _urlParameters;
                 }
 
@@ -476,19 +770,82 @@ public class RestDocumentation implements Serializable {
                  * An HTML-safe, textual key that uniquely identifies this endpoint.
                  */
                 public String getKey() {
-                    String key = path + "_" + _meth;
-                    for (String param : _urlParameters.getFields().keySet()) {
-                        key += "_" + param;
+                    return _key != null ? _key : buildKey();
+                }
+
+                private String buildKey() {
+                    StringBuilder key = new StringBuilder(_resource.path).append('_').append(_meth);
+                    if (_urlParameters != null) {
+                        for (String param : _urlParameters._names)
+                            key.append('_').append(param);
                     }
-                    return key;
+                    return key.toString();
+                }
+
+                /**
+                 * See {@link RestApi#precomputeDerivedValues()}.
+                 */
+                void precomputeDerivedValues() {
+                    _key = buildKey();
+                    _methodSpecificUrlSubstitutions = _resource.getMethodSpecificUrlSubstitutions(this).readOnly();
+                }
+
+                private void writeObject(ObjectOutputStream out) throws IOException {
+                    ObjectOutputStream.PutField fields = out.putFields();
+                    fields.put("_meth", _meth);
+                    fields.put("_docScopes", StringSet.toHashSet(_docScopes));
+                    fields.put("_traits", StringSet.toHashSet(_traits));
+                    fields.put("_authScopes", StringSet.toHashSet(_authScopes));
+                    fields.put("_requestBody", _requestBody);
+                    fields.put("_urlSubstitutions", _urlSubstitutions == null ? new UrlFields() : _urlSubstitutions);
+                    fields.put("_urlParameters", _urlParameters == null ? new UrlFields() : _urlParameters);
+                    fields.put("_responseBody", _responseBody);
+                    fields.put("_commentText", _commentText);
+                    fields.put("_isMultipartRequest", _isMultipartRequest);
+                    fields.put("_requestSchema", _requestSchema);
+                    fields.put("_responseSchema", _responseSchema);
+                    fields.put("_responseExample", _responseExample);
+                    fields.put("_requestExample", _requestExample);
+                    out.writeFields();
+                }
+
+                @SuppressWarnings("unchecked")
+                private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+                    ObjectInputStream.GetField fields = in.readFields();
+                    _meth = (String) fields.get("_meth", null);
+                    _docScopes = StringSet.copyOf((Collection<String>) fields.get("_docScopes", null));
+                    _traits = StringSet.copyOf((Collection<String>) fields.get("_traits", null));
+                    _authScopes = StringSet.copyOf((Collection<String>) fields.get("_authScopes", null));
+                    _requestBody = (JsonType) fields.get("_requestBody", null);
+                    _urlSubstitutions = UrlFields.orNull((UrlFields) fields.get("_urlSubstitutions", null));
+                    _urlParameters = UrlFields.orNull((UrlFields) fields.get("_urlParameters", null));
+                    _responseBody = (JsonType) fields.get("_responseBody", null);
+                    _commentText = (String) fields.get("_commentText", null);
+                    _isMultipartRequest = fields.get("_isMultipartRequest", false);
+                    _requestSchema = (String) fields.get("_requestSchema", null);
+                    _responseSchema = (String) fields.get("_responseSchema", null);
+                    _responseExample = (String) fields.get("_responseExample", null);
+                    _requestExample = (String) fields.get("_requestExample", null);
                 }
             }
 
-            public class UrlFields implements Serializable {
+            /**
+             * Named URL fields, in the order they were added; adding a field with an existing name replaces it in
+             * place. The fields are stored in arrays, which are only allocated once there is a field.
+             */
+            public static class UrlFields implements Serializable {
+                private static final long serialVersionUID = 1266686932936610305L;
+                private static final ObjectStreamField[] serialPersistentFields = {
+                        new ObjectStreamField("_jsonFields", Map.class) };
+                private static final String[] NO_NAMES = new String[0];
+                private static final UrlField[] NO_FIELDS = new UrlField[0];
 
-                private Map<String, UrlField> _jsonFields = new LinkedHashMap();
+                private String[] _names = NO_NAMES;
+                private UrlField[] _fields = NO_FIELDS;
+                private transient boolean _readOnly;
 
-                public class UrlField implements Serializable {
+                public static class UrlField implements Serializable {
+                    private static final long serialVersionUID = -1975375333223057228L;
 
                     private JsonType fieldType;
                     private String fieldDescription;
@@ -515,12 +872,91 @@ public class RestDocumentation implements Serializable {
                     }
                 }
 
+                /**
+                 * The fields, by name, as a read-only snapshot. Use {@link #addField} to add fields.
+                 */
                 public Map<String, UrlField> getFields() {
-                    return _jsonFields;
+                    Map<String, UrlField> fields = new LinkedHashMap<String, UrlField>();
+                    copyTo(fields);
+                    return Collections.unmodifiableMap(fields);
                 }
 
                 public void addField(String name, JsonType jsonType, String description) {
-                    _jsonFields.put(name, new UrlField(jsonType, description));
+                    put(name, new UrlField(jsonType, description));
+                }
+
+                void addFields(UrlFields fields) {
+                    for (int i = 0; i < fields._names.length; i++)
+                        put(fields._names[i], fields._fields[i]);
+                }
+
+                void put(String name, UrlField field) {
+                    if (_readOnly)
+                        throw new UnsupportedOperationException("precomputed URL fields are read-only");
+                    for (int i = 0; i < _names.length; i++) {
+                        if (_names[i].equals(name)) {
+                            _fields[i] = field;
+                            return;
+                        }
+                    }
+                    _names = Arrays.copyOf(_names, _names.length + 1);
+                    _fields = Arrays.copyOf(_fields, _fields.length + 1);
+                    _names[_names.length - 1] = name;
+                    _fields[_fields.length - 1] = field;
+                }
+
+                int size() {
+                    return _names.length;
+                }
+
+                String getName(int index) {
+                    return _names[index];
+                }
+
+                UrlField getField(int index) {
+                    return _fields[index];
+                }
+
+                void copyTo(Map<String, UrlField> fields) {
+                    for (int i = 0; i < _names.length; i++)
+                        fields.put(_names[i], _fields[i]);
+                }
+
+                void removeFrom(Map<String, UrlField> fields) {
+                    for (String name : _names)
+                        fields.remove(name);
+                }
+
+                /**
+                 * Refuse further changes to these fields, and return them.
+                 */
+                UrlFields readOnly() {
+                    _readOnly = true;
+                    return this;
+                }
+
+                static UrlFields orNull(UrlFields fields) {
+                    return fields == null || fields._names.length == 0 ? null : fields;
+                }
+
+                private void writeObject(ObjectOutputStream out) throws IOException {
+                    ObjectOutputStream.PutField fields = out.putFields();
+                    // written as the LinkedHashMap that the fields used to be kept in
+                    Map<String, UrlField> jsonFields = new LinkedHashMap<String, UrlField>();
+                    copyTo(jsonFields);
+                    fields.put("_jsonFields", jsonFields);
+                    out.writeFields();
+                }
+
+                @SuppressWarnings("unchecked")
+                private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+                    Map<String, UrlField> fields = (Map<String, UrlField>) in.readFields().get("_jsonFields", null);
+                    _names = NO_NAMES;
+                    _fields = NO_FIELDS;
+                    if (fields != null) {
+                        for (Map.Entry<String, UrlField> entry : fields.entrySet())
+                            put(entry.getKey(), entry.getValue());
+                    }
                 }
             }
         }
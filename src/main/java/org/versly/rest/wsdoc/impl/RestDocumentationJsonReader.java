@@ -0,0 +1,422 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incrementally reads documentation written by {@link RestDocumentationJsonWriter}. The header and the JSON
+ * types are read up front; after that, {@link #nextApi} and {@link #nextResource} read one API or resource at a
+ * time, so a consumer that only needs some of the documentation can stop (or skip ahead to the next API) without
+ * materializing the rest. Everything read is added to {@link #getDocumentation()}.
+ *
+ * <p>Properties may appear in any order, except that a resource's <code>path</code> and a method's
+ * <code>method</code> must come first, and the <code>types</code> array must come before the APIs.</p>
+ */
+public class RestDocumentationJsonReader implements Closeable {
+    private final JsonParser _parser;
+    private final RestDocumentation _docs = new RestDocumentation();
+    private final List<JsonType> _types = new ArrayList<JsonType>();
+    private boolean _done;
+
+    // the API whose resources are being read, if any
+    private RestDocumentation.RestApi _api;
+    private boolean _inResources;
+    private final Map<String, RestDocumentation.RestApi.Resource> _resources =
+            new HashMap<String, RestDocumentation.RestApi.Resource>();
+    private final Map<String, List<RestDocumentation.RestApi.Resource>> _orphans =
+            new HashMap<String, List<RestDocumentation.RestApi.Resource>>();
+
+    public RestDocumentationJsonReader(JsonParser parser) throws IOException {
+        _parser = parser;
+        expect(_parser.nextToken(), JsonToken.START_OBJECT);
+        while (_parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = _parser.getCurrentName();
+            JsonToken value = _parser.nextToken();
+            if ("wsdoc".equals(name)) {
+                if (_parser.getIntValue() > RestDocumentationJsonWriter.FORMAT_VERSION)
+                    throw new IOException(String.format(
+                            "unsupported wsdoc documentation format version %d; expected %d or earlier",
+                            _parser.getIntValue(), RestDocumentationJsonWriter.FORMAT_VERSION));
+            } else if ("level".equals(name)) {
+                try {
+                    _docs.setProcessingLevel(ProcessingLevel.fromString(_parser.getText()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            } else if ("types".equals(name)) {
+                expect(value, JsonToken.START_ARRAY);
+                while (_parser.nextToken() != JsonToken.END_ARRAY)
+                    _types.add(readTypeDefinition());
+            } else if ("apis".equals(name)) {
+                expect(value, JsonToken.START_ARRAY);
+                return;
+            } else {
+                _parser.skipChildren();
+            }
+        }
+        _done = true;
+    }
+
+    /**
+     * The documentation read so far.
+     */
+    public RestDocumentation getDocumentation() {
+        return _docs;
+    }
+
+    /**
+     * Read the properties of the next API, skipping any resources of the current one that have not been read.
+     * Returns <code>null</code> when there are no more APIs.
+     */
+    public RestDocumentation.RestApi nextApi() throws IOException {
+        finishApi();
+        if (_done)
+            return null;
+        JsonToken token = _parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            _done = true;
+            return null;
+        }
+        expect(token, JsonToken.START_OBJECT);
+
+        ApiProperties properties = new ApiProperties();
+        while (_parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = _parser.getCurrentName();
+            JsonToken value = _parser.nextToken();
+            if ("resources".equals(name)) {
+                expect(value, JsonToken.START_ARRAY);
+                _inResources = true;
+                break;
+            }
+            properties.read(name);
+        }
+
+        if (properties.identifier == null)
+            throw new IOException("API without an identifier at " + _parser.getCurrentLocation());
+        RestDocumentation.RestApi api = _docs.getRestApi(Utils.fillTemplate(properties.identifier));
+        properties.applyTo(api);
+        if (_inResources)
+            _api = api;
+        return api;
+    }
+
+    /**
+     * Read the next resource of the API last returned by {@link #nextApi}, or return <code>null</code> when it
+     * has no more resources.
+     */
+    public RestDocumentation.RestApi.Resource nextResource() throws IOException {
+        if (_api == null || !_inResources)
+            return null;
+        JsonToken token = _parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            _inResources = false;
+            finishApi();
+            return null;
+        }
+        expect(token, JsonToken.START_OBJECT);
+
+        RestDocumentation.RestApi.Resource resource = null;
+        while (_parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = _parser.getCurrentName();
+            JsonToken value = _parser.nextToken();
+            if ("path".equals(name)) {
+                String path = Utils.fillTemplate(_parser.getText());
+                resource = _api.getResourceDocumentation(path);
+                _resources.put(path, resource);
+                List<RestDocumentation.RestApi.Resource> children = _orphans.remove(path);
+                if (children != null) {
+                    for (RestDocumentation.RestApi.Resource child : children)
+                        child.setParent(resource);
+                }
+            } else if ("parent".equals(name)) {
+                String parent = Utils.fillTemplate(_parser.getText());
+                if (_resources.containsKey(parent)) {
+                    requireFirst(resource, "path").setParent(_resources.get(parent));
+                } else {
+                    if (!_orphans.containsKey(parent))
+                        _orphans.put(parent, new ArrayList<RestDocumentation.RestApi.Resource>());
+                    _orphans.get(parent).add(requireFirst(resource, "path"));
+                }
+            } else if ("methods".equals(name)) {
+                expect(value, JsonToken.START_ARRAY);
+                while (_parser.nextToken() != JsonToken.END_ARRAY)
+                    readMethod(requireFirst(resource, "path"));
+            } else {
+                _parser.skipChildren();
+            }
+        }
+        return requireFirst(resource, "path");
+    }
+
+    /**
+     * Read all remaining APIs and resources, and return the complete documentation.
+     */
+    public RestDocumentation readAll() throws IOException {
+        try {
+            while (nextApi() != null) {
+                while (nextResource() != null)
+                    ;
+            }
+            return _docs;
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        _parser.close();
+    }
+
+    /**
+     * Skip the unread resources of the current API, and read any API properties that follow them.
+     */
+    private void finishApi() throws IOException {
+        if (_api == null)
+            return;
+        if (_inResources) {
+            while (_parser.nextToken() != JsonToken.END_ARRAY)
+                _parser.skipChildren();
+            _inResources = false;
+        }
+        ApiProperties properties = new ApiProperties();
+        while (_parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = _parser.getCurrentName();
+            _parser.nextToken();
+            properties.read(name);
+        }
+        properties.applyTo(_api);
+        _api = null;
+        _resources.clear();
+        _orphans.clear();
+    }
+
+    private void readMethod(RestDocumentation.RestApi.Resource resource) throws IOException {
+        expect(_parser.getCurrentToken(), JsonToken.START_OBJECT);
+        RestDocumentation.RestApi.Resource.Method method = null;
+        while (_parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = _parser.getCurrentName();
+            _parser.nextToken();
+            if ("method".equals(name)) {
+                method = resource.newMethodDocumentation(_parser.getText());
+                continue;
+            }
+            requireFirst(method, "method");
+            if ("scopes".equals(name))
+                method.setDocScopes(RestDocumentationReader.newHashSet(readStrings()));
+            else if ("traits".equals(name))
+                method.setTraits(RestDocumentationReader.newHashSet(readStrings()));
+            else if ("authScopes".equals(name))
+                method.setAuthScopes(RestDocumentationReader.newHashSet(readStrings()));
+            else if ("requestBody".equals(name))
+                method.setRequestBody(readType());
+            else if ("responseBody".equals(name))
+                method.setResponseBody(readType());
+            else if ("urlSubstitutions".equals(name))
+                readUrlFields(method.getUrlSubstitutions());
+            else if ("urlParameters".equals(name))
+                readUrlFields(method.getUrlParameters());
+            else if ("comment".equals(name))
+                method.setCommentText(_parser.getText());
+            else if ("multipart".equals(name))
+                method.setMultipartRequest(_parser.getBooleanValue());
+            else if ("requestSchema".equals(name))
+                method.setRequestSchema(_parser.getText());
+            else if ("responseSchema".equals(name))
+                method.setResponseSchema(_parser.getText());
+            else if ("requestExample".equals(name))
+                method.setRequestExample(_parser.getText());
+            else if ("responseExample".equals(name))
+                method.setResponseExample(_parser.getText());
+            else
+                _parser.skipChildren();
+        }
+    }
+
+    private void readUrlFields(RestDocumentation.RestApi.Resource.UrlFields fields) throws IOException {
+        expect(_parser.getCurrentToken(), JsonToken.START_ARRAY);
+        while (_parser.nextToken() != JsonToken.END_ARRAY) {
+            expect(_parser.getCurrentToken(), JsonToken.START_OBJECT);
+            String fieldName = null;
+            JsonType type = null;
+            String description = null;
+            while (_parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = _parser.getCurrentName();
+                _parser.nextToken();
+                if ("name".equals(name))
+                    fieldName = _parser.getText();
+                else if ("type".equals(name))
+                    type = readType();
+                else if ("description".equals(name))
+                    description = _parser.getText();
+                else
+                    _parser.skipChildren();
+            }
+            fields.addField(fieldName, type, description);
+        }
+    }
+
+    private JsonType readTypeDefinition() throws IOException {
+        expect(_parser.getCurrentToken(), JsonToken.START_OBJECT);
+        String kind = null;
+        String typeName = null;
+        List<String> restrictions = null;
+        List<Object[]> fields = new ArrayList<Object[]>();
+        JsonType element = null;
+        JsonType key = null;
+        JsonType value = null;
+        while (_parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = _parser.getCurrentName();
+            _parser.nextToken();
+            if ("kind".equals(name)) {
+                kind = _parser.getText();
+            } else if ("name".equals(name)) {
+                typeName = _parser.getText();
+            } else if ("restrictions".equals(name)) {
+                restrictions = readStrings();
+            } else if ("fields".equals(name)) {
+                expect(_parser.getCurrentToken(), JsonToken.START_ARRAY);
+                while (_parser.nextToken() != JsonToken.END_ARRAY)
+                    fields.add(readObjectField());
+            } else if ("element".equals(name)) {
+                element = readType();
+            } else if ("key".equals(name)) {
+                key = readType();
+            } else if ("value".equals(name)) {
+                value = readType();
+            } else {
+                _parser.skipChildren();
+            }
+        }
+
+        if ("primitive".equals(kind)) {
+            JsonPrimitive primitive = new JsonPrimitive(typeName);
+            primitive.setRestrictions(restrictions);
+            return primitive;
+        } else if ("object".equals(kind)) {
+            JsonObject object = new JsonObject();
+            object.setTypeName(typeName);
+            for (Object[] field : fields)
+                object.addField((String) field[0], (JsonType) field[1]).setCommentText((String) field[2]);
+            return object;
+        } else if ("array".equals(kind)) {
+            return new JsonArray(element);
+        } else if ("dict".equals(kind)) {
+            return new JsonDict(key, value);
+        } else if ("recursive".equals(kind)) {
+            return new JsonRecursiveObject(typeName);
+        }
+        throw new IOException("unknown JSON type kind '" + kind + "' at " + _parser.getCurrentLocation());
+    }
+
+    /**
+     * Read a field of an object type as its name, type and comment.
+     */
+    private Object[] readObjectField() throws IOException {
+        expect(_parser.getCurrentToken(), JsonToken.START_OBJECT);
+        Object[] field = new Object[3];
+        while (_parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = _parser.getCurrentName();
+            _parser.nextToken();
+            if ("name".equals(name))
+                field[0] = _parser.getText();
+            else if ("type".equals(name))
+                field[1] = readType();
+            else if ("comment".equals(name))
+                field[2] = _parser.getText();
+            else
+                _parser.skipChildren();
+        }
+        return field;
+    }
+
+    private JsonType readType() throws IOException {
+        int index = _parser.getIntValue();
+        if (index < 0 || index >= _types.size())
+            throw new IOException("JSON type reference " + index + " out of range at " + _parser.getCurrentLocation());
+        return _types.get(index);
+    }
+
+    private List<String> readStrings() throws IOException {
+        expect(_parser.getCurrentToken(), JsonToken.START_ARRAY);
+        List<String> strings = new ArrayList<String>();
+        while (_parser.nextToken() != JsonToken.END_ARRAY)
+            strings.add(_parser.getText());
+        return strings;
+    }
+
+    private void expect(JsonToken token, JsonToken expected) throws IOException {
+        if (token != expected)
+            throw new IOException(String.format("expected %s but found %s at %s",
+                    expected, token, _parser.getCurrentLocation()));
+    }
+
+    private <T> T requireFirst(T value, String property) throws IOException {
+        if (value == null)
+            throw new IOException(String.format("'%s' must be the first property at %s",
+                    property, _parser.getCurrentLocation()));
+        return value;
+    }
+
+    /**
+     * The scalar properties of an API, which are collected before the API is created since the identifier
+     * need not come first.
+     */
+    private class ApiProperties {
+        String identifier;
+        String mount;
+        String title;
+        String version;
+        String documentation;
+        List<String> traits;
+
+        void read(String name) throws IOException {
+            if ("identifier".equals(name))
+                identifier = _parser.getText();
+            else if ("mount".equals(name))
+                mount = _parser.getText();
+            else if ("title".equals(name))
+                title = _parser.getText();
+            else if ("version".equals(name))
+                version = _parser.getText();
+            else if ("documentation".equals(name))
+                documentation = _parser.getText();
+            else if ("traits".equals(name))
+                traits = readStrings();
+            else
+                _parser.skipChildren();
+        }
+
+        void applyTo(RestDocumentation.RestApi api) {
+            api.setMount(Utils.fillTemplate(mount));
+            api.setApiTitle(Utils.fillTemplate(title));
+            api.setApiVersion(Utils.fillTemplate(version));
+            api.setApiDocumentation(documentation);
+            if (traits != null)
+                api.setTraits(RestDocumentationReader.newHashSet(traits));
+        }
+    }
+}
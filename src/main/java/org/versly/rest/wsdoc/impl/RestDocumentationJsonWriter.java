@@ -0,0 +1,219 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link RestDocumentation} instances as JSON (or any other format with a Jackson {@link JsonGenerator},
+ * such as Smile), as read by {@link RestDocumentationJsonReader}. The document looks like:
+ * <pre>
+ * { "wsdoc": 1, "level": "full",
+ *   "types": [ { "kind": "object", "name": "com.example.Order", "fields": [ { "name": "id", "type": 0 } ] }, ... ],
+ *   "apis": [ { "identifier": ..., "mount": ..., "resources": [ { "path": ..., "parent": ..., "methods": [ ... ] } ] } ] }
+ * </pre>
+ * JSON types are written once, in the <code>types</code> array, and referred to by their index in it; a type only
+ * refers to types before it. <code>null</code> values are omitted. The <code>types</code> array and the API
+ * properties are written before the resources, so that readers can stream through the resources.
+ */
+public class RestDocumentationJsonWriter {
+    static final int FORMAT_VERSION = 1;
+
+    private final JsonGenerator _generator;
+    private final Map<JsonType, Integer> _types = new IdentityHashMap<JsonType, Integer>();
+    private final List<JsonType> _typeTable = new ArrayList<JsonType>();
+
+    public RestDocumentationJsonWriter(JsonGenerator generator) {
+        _generator = generator;
+        _generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public void write(RestDocumentation docs) throws IOException {
+        collectTypes(docs);
+
+        _generator.writeStartObject();
+        _generator.writeNumberField("wsdoc", FORMAT_VERSION);
+        _generator.writeStringField("level", docs.getProcessingLevel().name().toLowerCase());
+        _generator.writeArrayFieldStart("types");
+        for (JsonType type : _typeTable)
+            writeTypeDefinition(type);
+        _generator.writeEndArray();
+
+        _generator.writeArrayFieldStart("apis");
+        for (RestDocumentation.RestApi api : docs.getApis())
+            writeApi(api);
+        _generator.writeEndArray();
+        _generator.writeEndObject();
+        _generator.close();
+    }
+
+    private void writeApi(RestDocumentation.RestApi api) throws IOException {
+        _generator.writeStartObject();
+        writeString("identifier", api.getIdentifier());
+        writeString("mount", api.getMount());
+        writeString("title", api.getApiTitle());
+        writeString("version", api.getApiVersion());
+        writeString("documentation", api.getApiDocumentation());
+        writeStrings("traits", api.getTraits());
+
+        _generator.writeArrayFieldStart("resources");
+        for (RestDocumentation.RestApi.Resource resource : api.getResources()) {
+            _generator.writeStartObject();
+            writeString("path", resource.getPath());
+            if (resource.getParent() != null)
+                writeString("parent", resource.getParent().getPath());
+            _generator.writeArrayFieldStart("methods");
+            for (RestDocumentation.RestApi.Resource.Method method : resource.getRequestMethodDocs())
+                writeMethod(method);
+            _generator.writeEndArray();
+            _generator.writeEndObject();
+        }
+        _generator.writeEndArray();
+        _generator.writeEndObject();
+    }
+
+    private void writeMethod(RestDocumentation.RestApi.Resource.Method method) throws IOException {
+        _generator.writeStartObject();
+        writeString("method", method.getRequestMethod());
+        writeStrings("scopes", method.getDocScopes());
+        writeStrings("traits", method.getTraits());
+        writeStrings("authScopes", method.getAuthScopes());
+        writeType("requestBody", method.getRequestBody());
+        writeType("responseBody", method.getResponseBody());
+        writeUrlFields("urlSubstitutions", method.getUrlSubstitutions());
+        writeUrlFields("urlParameters", method.getUrlParameters());
+        writeString("comment", method.getCommentText());
+        if (method.isMultipartRequest())
+            _generator.writeBooleanField("multipart", true);
+        writeString("requestSchema", method.getRequestSchema());
+        writeString("responseSchema", method.getResponseSchema());
+        writeString("requestExample", method.getRequestExample());
+        writeString("responseExample", method.getResponseExample());
+        _generator.writeEndObject();
+    }
+
+    private void writeUrlFields(String name, RestDocumentation.RestApi.Resource.UrlFields fields) throws IOException {
+        if (fields.getFields().isEmpty())
+            return;
+        _generator.writeArrayFieldStart(name);
+        for (Map.Entry<String, RestDocumentation.RestApi.Resource.UrlFields.UrlField> entry
+                : fields.getFields().entrySet()) {
+            _generator.writeStartObject();
+            writeString("name", entry.getKey());
+            writeType("type", entry.getValue().getFieldType());
+            writeString("description", entry.getValue().getFieldDescription());
+            _generator.writeEndObject();
+        }
+        _generator.writeEndArray();
+    }
+
+    private void writeTypeDefinition(JsonType type) throws IOException {
+        _generator.writeStartObject();
+        if (type instanceof JsonPrimitive) {
+            _generator.writeStringField("kind", "primitive");
+            writeString("name", ((JsonPrimitive) type).getTypeName());
+            writeStrings("restrictions", ((JsonPrimitive) type).getRestrictions());
+        } else if (type instanceof JsonObject) {
+            _generator.writeStringField("kind", "object");
+            writeString("name", ((JsonObject) type).getTypeName());
+            _generator.writeArrayFieldStart("fields");
+            for (JsonObject.JsonField field : ((JsonObject) type).getFields()) {
+                _generator.writeStartObject();
+                writeString("name", field.getFieldName());
+                writeType("type", field.getFieldType());
+                writeString("comment", field.getCommentText());
+                _generator.writeEndObject();
+            }
+            _generator.writeEndArray();
+        } else if (type instanceof JsonArray) {
+            _generator.writeStringField("kind", "array");
+            writeType("element", ((JsonArray) type).getElementType());
+        } else if (type instanceof JsonDict) {
+            _generator.writeStringField("kind", "dict");
+            writeType("key", ((JsonDict) type).getKeyType());
+            writeType("value", ((JsonDict) type).getValueType());
+        } else if (type instanceof JsonRecursiveObject) {
+            _generator.writeStringField("kind", "recursive");
+            writeString("name", ((JsonRecursiveObject) type).getRecursedObjectTypeName());
+        }
+        _generator.writeEndObject();
+    }
+
+    private void writeString(String name, String value) throws IOException {
+        if (value != null)
+            _generator.writeStringField(name, value);
+    }
+
+    private void writeStrings(String name, Collection<String> values) throws IOException {
+        if (values == null)
+            return;
+        _generator.writeArrayFieldStart(name);
+        for (String value : values)
+            _generator.writeString(value);
+        _generator.writeEndArray();
+    }
+
+    private void writeType(String name, JsonType type) throws IOException {
+        if (type != null)
+            _generator.writeNumberField(name, _types.get(type));
+    }
+
+    /**
+     * Number every type reachable from the documentation, referenced types first.
+     */
+    private void collectTypes(RestDocumentation docs) {
+        for (RestDocumentation.RestApi api : docs.getApis()) {
+            for (RestDocumentation.RestApi.Resource resource : api.getResources()) {
+                for (RestDocumentation.RestApi.Resource.Method method : resource.getRequestMethodDocs()) {
+                    collectType(method.getRequestBody());
+                    collectType(method.getResponseBody());
+                    for (RestDocumentation.RestApi.Resource.UrlFields.UrlField field
+                            : method.getUrlSubstitutions().getFields().values())
+                        collectType(field.getFieldType());
+                    for (RestDocumentation.RestApi.Resource.UrlFields.UrlField field
+                            : method.getUrlParameters().getFields().values())
+                        collectType(field.getFieldType());
+                }
+            }
+        }
+    }
+
+    private void collectType(JsonType type) {
+        if (type == null || _types.containsKey(type))
+            return;
+        if (type instanceof JsonObject) {
+            for (JsonObject.JsonField field : ((JsonObject) type).getFields())
+                collectType(field.getFieldType());
+        } else if (type instanceof JsonArray) {
+            collectType(((JsonArray) type).getElementType());
+        } else if (type instanceof JsonDict) {
+            collectType(((JsonDict) type).getKeyType());
+            collectType(((JsonDict) type).getValueType());
+        } else if (!(type instanceof JsonPrimitive) && !(type instanceof JsonRecursiveObject)) {
+            throw new IllegalArgumentException("unsupported JSON type " + type.getClass().getName());
+        }
+        _types.put(type, _typeTable.size());
+        _typeTable.add(type);
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Reads {@link RestDocumentation} instances written by {@link RestDocumentationWriter} from a stream, front to
+ * back; the index at the end of the file, if any, is not needed. As with Java deserialization, templated API and
+ * resource fields are filled in via {@link Utils#fillTemplate} as they are read. Compressed files are decompressed
+ * a block at a time as they are read.
+ */
+public class RestDocumentationReader {
+    private DataInputStream _in;
+    private String[] _strings;
+    private JsonType[] _types;
+
+    public RestDocumentationReader(InputStream in) {
+        _in = new DataInputStream(in);
+    }
+
+    /**
+     * Whether <code>header</code> starts with the magic bytes of the binary format.
+     */
+    public static boolean isBinaryFormat(byte[] header) {
+        return header.length >= RestDocumentationWriter.MAGIC.length && Arrays.equals(
+                RestDocumentationWriter.MAGIC, Arrays.copyOf(header, RestDocumentationWriter.MAGIC.length));
+    }
+
+    /**
+     * Whether <code>header</code>, the first bytes of a binary documentation file, has the
+     * {@link RestDocumentationWriter#FLAG_COMPRESSED} flag set.
+     */
+    public static boolean isCompressed(byte[] header, int length) {
+        if (length < RestDocumentationWriter.MAGIC.length || !isBinaryFormat(header))
+            return false;
+        int position = RestDocumentationWriter.MAGIC.length;
+        // skip the version varint
+        while (position < length && (header[position] & 0x80) != 0)
+            position++;
+        position++;
+        return position < length && (header[position] & RestDocumentationWriter.FLAG_COMPRESSED) != 0;
+    }
+
+    public RestDocumentation read() throws IOException {
+        byte[] magic = new byte[RestDocumentationWriter.MAGIC.length];
+        _in.readFully(magic);
+        if (!isBinaryFormat(magic))
+            throw new IOException("not a wsdoc binary documentation file");
+        int version = readVarint();
+        if (version > RestDocumentationWriter.FORMAT_VERSION)
+            throw new IOException(String.format("unsupported wsdoc documentation format version %d; expected %d or earlier",
+                    version, RestDocumentationWriter.FORMAT_VERSION));
+        int flags = readVarint();
+        if ((flags & ~RestDocumentationWriter.KNOWN_FLAGS) != 0)
+            throw new IOException(String.format("unsupported wsdoc documentation format flags 0x%x", flags));
+        if ((flags & RestDocumentationWriter.FLAG_COMPRESSED) == 0)
+            return readBody();
+
+        DeflateBlockInputStream blocks = new DeflateBlockInputStream(_in);
+        try {
+            _in = new DataInputStream(blocks);
+            return readBody();
+        } finally {
+            blocks.close();
+        }
+    }
+
+    private RestDocumentation readBody() throws IOException {
+        RestDocumentation docs = new RestDocumentation();
+        int level = readVarint();
+        if (level >= ProcessingLevel.values().length)
+            throw new IOException("unknown processing level " + level);
+        docs.setProcessingLevel(ProcessingLevel.values()[level]);
+
+        _strings = new String[readVarint()];
+        for (int i = 0; i < _strings.length; i++) {
+            byte[] bytes = new byte[readVarint()];
+            _in.readFully(bytes);
+            _strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        _types = new JsonType[readVarint()];
+        for (int i = 0; i < _types.length; i++)
+            _types[i] = readTypeDefinition();
+
+        int apiCount = readVarint();
+        for (int i = 0; i < apiCount; i++)
+            readApi(docs);
+        return docs;
+    }
+
+    private void readApi(RestDocumentation docs) throws IOException {
+        RestDocumentation.RestApi api = docs.getRestApi(Utils.fillTemplate(readString()));
+        api.setMount(Utils.fillTemplate(readString()));
+        api.setApiTitle(Utils.fillTemplate(readString()));
+        api.setApiVersion(Utils.fillTemplate(readString()));
+        api.setApiDocumentation(readString());
+        HashSet<String> traits = readStrings();
+        if (traits != null)
+            api.setTraits(traits);
+
+        RestDocumentation.RestApi.Resource[] resources = new RestDocumentation.RestApi.Resource[readVarint()];
+        int[] parents = new int[resources.length];
+        for (int i = 0; i < resources.length; i++) {
+            resources[i] = api.getResourceDocumentation(Utils.fillTemplate(readString()));
+            parents[i] = readVarint();
+            int methodCount = readVarint();
+            for (int j = 0; j < methodCount; j++)
+                readMethod(resources[i]);
+        }
+
+        // parents may appear after their children, e.g. mount points added by RestDocumentation.postProcess()
+        for (int i = 0; i < resources.length; i++) {
+            if (parents[i] > resources.length)
+                throw new IOException("resource reference " + parents[i] + " out of range");
+            if (parents[i] > 0)
+                resources[i].setParent(resources[parents[i] - 1]);
+        }
+    }
+
+    private void readMethod(RestDocumentation.RestApi.Resource resource) throws IOException {
+        RestDocumentation.RestApi.Resource.Method method = resource.newMethodDocumentation(readString());
+        method.setDocScopes(readStrings());
+        method.setTraits(readStrings());
+        method.setAuthScopes(readStrings());
+        method.setRequestBody(readType());
+        method.setResponseBody(readType());
+        readUrlFields(method::getUrlSubstitutions);
+        readUrlFields(method::getUrlParameters);
+        method.setCommentText(readString());
+        method.setMultipartRequest(readVarint() != 0);
+        method.setRequestSchema(readString());
+        method.setResponseSchema(readString());
+        method.setRequestExample(readString());
+        method.setResponseExample(readString());
+    }
+
+    /**
+     * Read a method's URL fields, only creating them if there are any.
+     */
+    private void readUrlFields(Supplier<RestDocumentation.RestApi.Resource.UrlFields> fields) throws IOException {
+        int count = readVarint();
+        for (int i = 0; i < count; i++)
+            fields.get().addField(readString(), readType(), readString());
+    }
+
+    private JsonType readTypeDefinition() throws IOException {
+        int tag = readVarint();
+        switch (tag) {
+            case RestDocumentationWriter.TYPE_PRIMITIVE:
+                JsonPrimitive primitive = new JsonPrimitive(readString());
+                primitive.setRestrictions(readStringList());
+                return primitive;
+            case RestDocumentationWriter.TYPE_OBJECT:
+            case RestDocumentationWriter.TYPE_NAMED_OBJECT:
+                JsonObject object = new JsonObject();
+                if (tag == RestDocumentationWriter.TYPE_NAMED_OBJECT)
+                    object.setTypeName(readString());
+                int fieldCount = readVarint();
+                for (int i = 0; i < fieldCount; i++)
+                    object.addField(readString(), readType()).setCommentText(readString());
+                return object;
+            case RestDocumentationWriter.TYPE_ARRAY:
+                return new JsonArray(readType());
+            case RestDocumentationWriter.TYPE_DICT:
+                return new JsonDict(readType(), readType());
+            case RestDocumentationWriter.TYPE_RECURSIVE:
+                return new JsonRecursiveObject(readString());
+            default:
+                throw new IOException("unknown JSON type tag " + tag);
+        }
+    }
+
+    private String readString() throws IOException {
+        int ref = readVarint();
+        if (ref == 0)
+            return null;
+        if (ref > _strings.length)
+            throw new IOException("string reference " + ref + " out of range");
+        return _strings[ref - 1];
+    }
+
+    private List<String> readStringList() throws IOException {
+        int size = readVarint();
+        if (size == 0)
+            return null;
+        List<String> strings = new ArrayList<String>(size - 1);
+        for (int i = 1; i < size; i++)
+            strings.add(readString());
+        return strings;
+    }
+
+    private HashSet<String> readStrings() throws IOException {
+        return newHashSet(readStringList());
+    }
+
+    /**
+     * Copy <code>strings</code> into a set sized the way {@link HashSet} deserialization sizes it, so that
+     * iteration order (and so the rendered output) is the same as for Java-serialized files.
+     */
+    static HashSet<String> newHashSet(List<String> strings) {
+        return StringSet.toHashSet(strings);
+    }
+
+    private JsonType readType() throws IOException {
+        int ref = readVarint();
+        if (ref == 0)
+            return null;
+        if (ref > _types.length || _types[ref - 1] == null)
+            throw new IOException("JSON type reference " + ref + " out of range");
+        return _types[ref - 1];
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = _in.read();
+            if (b < 0)
+                throw new EOFException();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("malformed varint");
+    }
+}
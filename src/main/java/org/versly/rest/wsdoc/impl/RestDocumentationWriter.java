@@ -0,0 +1,353 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes {@link RestDocumentation} instances in the wsdoc binary intermediate format, as read by
+ * {@link RestDocumentationReader}. The format consists of:
+ * <ul>
+ *     <li>a header: the {@link #MAGIC} bytes, the format version, a flags word and the processing level;</li>
+ *     <li>a string table, which every string in the rest of the file refers to by index;</li>
+ *     <li>a table of {@link JsonType} definitions, so that types shared by several methods (or nested in
+ *     several other types) are only written once; definitions only refer to earlier definitions;</li>
+ *     <li>the APIs, each with its resources and their methods;</li>
+ *     <li>if the {@link #FLAG_INDEXED} flag is set, a footer index followed by a trailer holding the offset of the
+ *     index and the magic bytes again. This lets {@link MappedRestDocumentationReader} find the sections of the
+ *     file it needs, and skip the others, without decoding anything else.</li>
+ * </ul>
+ * If the {@link #FLAG_COMPRESSED} flag is set, everything after the flags word is compressed with
+ * {@link DeflateBlockOutputStream}; decompressed, it is exactly what would otherwise have been written, so all
+ * offsets below refer to the decompressed file.
+ * All integers outside the index are unsigned varints. String and type references are written as index + 1, with 0
+ * standing for <code>null</code>, and collections that may be <code>null</code> are written as size + 1 in the same
+ * way.
+ * <p>The index consists of big-endian 32-bit integers:</p>
+ * <ul>
+ *     <li>the string count and the offset of each string, then the type count and the offset of each type;</li>
+ *     <li>the offset of the API section, which the API and resource offsets below are relative to;</li>
+ *     <li>the API count, then for each API: its identifier (as a string reference), its offset, the doc scopes of
+ *     its methods (a count and string references), and its resource count;</li>
+ *     <li>after each API, for each of its resources: its offset, its path (as a string reference), its parent (as
+ *     resource index + 1, or 0), and the doc scopes of its methods.</li>
+ * </ul>
+ */
+public class RestDocumentationWriter {
+    static final byte[] MAGIC = { 'W', 'S', 'D', 'C' };
+    static final int FORMAT_VERSION = 2;
+
+    /** Header flag set when the file ends with an index. */
+    static final int FLAG_INDEXED = 1;
+    /** Header flag set when the rest of the file is deflate-compressed. */
+    static final int FLAG_COMPRESSED = 2;
+    static final int KNOWN_FLAGS = FLAG_INDEXED | FLAG_COMPRESSED;
+
+    /** The length of the trailer: the index offset and the magic bytes. */
+    static final int TRAILER_LENGTH = 4 + MAGIC.length;
+
+    static final int TYPE_PRIMITIVE = 0;
+    static final int TYPE_OBJECT = 1;
+    static final int TYPE_ARRAY = 2;
+    static final int TYPE_DICT = 3;
+    static final int TYPE_RECURSIVE = 4;
+    /** An object with a type name, written before its fields; since format version 2. */
+    static final int TYPE_NAMED_OBJECT = 5;
+
+    private final OutputStream _out;
+    private final boolean _compressed;
+    private final Map<String, Integer> _strings = new HashMap<String, Integer>();
+    private final List<String> _stringTable = new ArrayList<String>();
+    private final Map<JsonType, Integer> _types = new IdentityHashMap<JsonType, Integer>();
+    private final Map<JsonType, Boolean> _typesInProgress = new IdentityHashMap<JsonType, Boolean>();
+    private final VarintOutput _typeTable = new VarintOutput();
+    private final List<Integer> _typeOffsets = new ArrayList<Integer>();
+    private final VarintOutput _apiIndex = new VarintOutput();
+
+    public RestDocumentationWriter(OutputStream out) {
+        this(out, false);
+    }
+
+    public RestDocumentationWriter(OutputStream out, boolean compressed) {
+        _out = out;
+        _compressed = compressed;
+    }
+
+    public void write(RestDocumentation docs) throws IOException {
+        // the body is encoded first, since that is what populates the string and type tables
+        VarintOutput body = new VarintOutput();
+        writeApis(body, docs);
+
+        VarintOutput header = new VarintOutput();
+        header.write(MAGIC);
+        header.writeVarint(FORMAT_VERSION);
+        header.writeVarint(_compressed ? FLAG_INDEXED | FLAG_COMPRESSED : FLAG_INDEXED);
+        int prefixLength = header.size();
+        header.writeVarint(docs.getProcessingLevel().ordinal());
+        header.writeVarint(_stringTable.size());
+        int[] stringOffsets = new int[_stringTable.size()];
+        for (int i = 0; i < stringOffsets.length; i++) {
+            stringOffsets[i] = header.size();
+            byte[] bytes = _stringTable.get(i).getBytes(StandardCharsets.UTF_8);
+            header.writeVarint(bytes.length);
+            header.write(bytes);
+        }
+        header.writeVarint(_types.size());
+
+        int typeTableOffset = header.size();
+        int bodyOffset = typeTableOffset + _typeTable.size();
+        VarintOutput index = new VarintOutput();
+        index.writeInt(stringOffsets.length);
+        for (int offset : stringOffsets)
+            index.writeInt(offset);
+        index.writeInt(_typeOffsets.size());
+        for (int offset : _typeOffsets)
+            index.writeInt(typeTableOffset + offset);
+        index.writeInt(bodyOffset);
+        index.writeInt(docs.getApis().size());
+        _apiIndex.writeTo(index);
+        index.writeInt(bodyOffset + body.size());
+        index.write(MAGIC);
+
+        if (!_compressed) {
+            header.writeTo(_out);
+            _typeTable.writeTo(_out);
+            body.writeTo(_out);
+            index.writeTo(_out);
+            _out.flush();
+            return;
+        }
+
+        _out.write(header.toByteArray(), 0, prefixLength);
+        DeflateBlockOutputStream compressed = new DeflateBlockOutputStream(_out);
+        compressed.write(header.toByteArray(), prefixLength, header.size() - prefixLength);
+        _typeTable.writeTo(compressed);
+        body.writeTo(compressed);
+        index.writeTo(compressed);
+        compressed.finish();
+    }
+
+    private void writeApis(VarintOutput out, RestDocumentation docs) throws IOException {
+        out.writeVarint(docs.getApis().size());
+        for (RestDocumentation.RestApi api : docs.getApis()) {
+            int apiOffset = out.size();
+            writeString(out, api.getIdentifier());
+            writeString(out, api.getMount());
+            writeString(out, api.getApiTitle());
+            writeString(out, api.getApiVersion());
+            writeString(out, api.getApiDocumentation());
+            writeStrings(out, api.getTraits());
+
+            // parents are written as indexes into the API's resource list
+            Map<RestDocumentation.RestApi.Resource, Integer> resourceIndexes =
+                    new IdentityHashMap<RestDocumentation.RestApi.Resource, Integer>();
+            for (RestDocumentation.RestApi.Resource resource : api.getResources())
+                resourceIndexes.put(resource, resourceIndexes.size());
+
+            VarintOutput resourceIndex = new VarintOutput();
+            Set<String> apiScopes = new TreeSet<String>();
+            out.writeVarint(api.getResources().size());
+            for (RestDocumentation.RestApi.Resource resource : api.getResources()) {
+                Integer parent = resourceIndexes.get(resource.getParent());
+                Set<String> scopes = new TreeSet<String>();
+                for (RestDocumentation.RestApi.Resource.Method method : resource.getRequestMethodDocs()) {
+                    if (method.getDocScopes() != null)
+                        scopes.addAll(method.getDocScopes());
+                }
+                apiScopes.addAll(scopes);
+                resourceIndex.writeInt(out.size());
+                resourceIndex.writeInt(stringRef(resource.getPath()));
+                resourceIndex.writeInt(parent == null ? 0 : parent + 1);
+                writeStringRefs(resourceIndex, scopes);
+
+                writeString(out, resource.getPath());
+                out.writeVarint(parent == null ? 0 : parent + 1);
+                out.writeVarint(resource.getRequestMethodDocs().size());
+                for (RestDocumentation.RestApi.Resource.Method method : resource.getRequestMethodDocs())
+                    writeMethod(out, method);
+            }
+
+            _apiIndex.writeInt(stringRef(api.getIdentifier()));
+            _apiIndex.writeInt(apiOffset);
+            writeStringRefs(_apiIndex, apiScopes);
+            _apiIndex.writeInt(api.getResources().size());
+            resourceIndex.writeTo(_apiIndex);
+        }
+    }
+
+    private void writeStringRefs(VarintOutput index, Collection<String> strings) {
+        index.writeInt(strings.size());
+        for (String string : strings)
+            index.writeInt(stringRef(string));
+    }
+
+    private void writeMethod(VarintOutput out, RestDocumentation.RestApi.Resource.Method method) throws IOException {
+        writeString(out, method.getRequestMethod());
+        writeStrings(out, method.getDocScopes());
+        writeStrings(out, method.getTraits());
+        writeStrings(out, method.getAuthScopes());
+        writeType(out, method.getRequestBody());
+        writeType(out, method.getResponseBody());
+        writeUrlFields(out, method.getUrlSubstitutions());
+        writeUrlFields(out, method.getUrlParameters());
+        writeString(out, method.getCommentText());
+        out.writeVarint(method.isMultipartRequest() ? 1 : 0);
+        writeString(out, method.getRequestSchema());
+        writeString(out, method.getResponseSchema());
+        writeString(out, method.getRequestExample());
+        writeString(out, method.getResponseExample());
+    }
+
+    private void writeUrlFields(VarintOutput out, RestDocumentation.RestApi.Resource.UrlFields fields)
+            throws IOException {
+        out.writeVarint(fields.getFields().size());
+        for (Map.Entry<String, RestDocumentation.RestApi.Resource.UrlFields.UrlField> entry
+                : fields.getFields().entrySet()) {
+            writeString(out, entry.getKey());
+            writeType(out, entry.getValue().getFieldType());
+            writeString(out, entry.getValue().getFieldDescription());
+        }
+    }
+
+    private void writeString(VarintOutput out, String string) {
+        out.writeVarint(stringRef(string));
+    }
+
+    private int stringRef(String string) {
+        return string == null ? 0 : internString(string) + 1;
+    }
+
+    private void writeStrings(VarintOutput out, Collection<String> strings) {
+        if (strings == null) {
+            out.writeVarint(0);
+            return;
+        }
+        out.writeVarint(strings.size() + 1);
+        for (String string : strings)
+            writeString(out, string);
+    }
+
+    private int internString(String string) {
+        Integer index = _strings.get(string);
+        if (index == null) {
+            index = _stringTable.size();
+            _strings.put(string, index);
+            _stringTable.add(string);
+        }
+        return index;
+    }
+
+    private void writeType(VarintOutput out, JsonType type) {
+        out.writeVarint(type == null ? 0 : internType(type) + 1);
+    }
+
+    /**
+     * Return the type table index of <code>type</code>, first adding its definition (and those of the types it
+     * refers to) to the type table if necessary.
+     */
+    private int internType(JsonType type) {
+        Integer index = _types.get(type);
+        if (index != null)
+            return index;
+        if (_typesInProgress.put(type, Boolean.TRUE) != null)
+            throw new IllegalStateException("cyclic JSON type graph at " + type);
+
+        // encode the definition separately, since referenced types must be added to the table first
+        VarintOutput definition = new VarintOutput();
+        if (type instanceof JsonPrimitive) {
+            JsonPrimitive primitive = (JsonPrimitive) type;
+            definition.writeVarint(TYPE_PRIMITIVE);
+            writeString(definition, primitive.getTypeName());
+            writeStrings(definition, primitive.getRestrictions());
+        } else if (type instanceof JsonObject) {
+            JsonObject object = (JsonObject) type;
+            if (object.getTypeName() == null) {
+                definition.writeVarint(TYPE_OBJECT);
+            } else {
+                definition.writeVarint(TYPE_NAMED_OBJECT);
+                writeString(definition, object.getTypeName());
+            }
+            definition.writeVarint(object.getFields().size());
+            for (JsonObject.JsonField field : object.getFields()) {
+                writeString(definition, field.getFieldName());
+                writeType(definition, field.getFieldType());
+                writeString(definition, field.getCommentText());
+            }
+        } else if (type instanceof JsonArray) {
+            definition.writeVarint(TYPE_ARRAY);
+            writeType(definition, ((JsonArray) type).getElementType());
+        } else if (type instanceof JsonDict) {
+            definition.writeVarint(TYPE_DICT);
+            writeType(definition, ((JsonDict) type).getKeyType());
+            writeType(definition, ((JsonDict) type).getValueType());
+        } else if (type instanceof JsonRecursiveObject) {
+            definition.writeVarint(TYPE_RECURSIVE);
+            writeString(definition, ((JsonRecursiveObject) type).getRecursedObjectTypeName());
+        } else {
+            throw new IllegalArgumentException("unsupported JSON type " + type.getClass().getName());
+        }
+
+        _typesInProgress.remove(type);
+        index = _types.size();
+        _types.put(type, index);
+        _typeOffsets.add(_typeTable.size());
+        definition.writeTo(_typeTable);
+        return index;
+    }
+
+    /**
+     * A byte buffer with varint encoding.
+     */
+    static class VarintOutput extends ByteArrayOutputStream {
+        void writeVarint(int value) {
+            if (value < 0)
+                throw new IllegalArgumentException("negative varint " + value);
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        @Override
+        public void write(byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeTo(VarintOutput out) {
+            out.write(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The distinct JSON schemas of the request and response bodies of an API, each under a name that the RAML output
+ * lists once in its <code>schemas</code> section and uses in place of the schema in every method body.
+ * Schemas are told apart by their content; each is named after the type of the first body found with it.
+ */
+public class SchemaCatalog {
+    private final SortedMap<String, String> _schemas = new TreeMap<String, String>();
+    private final Map<String, String> _names = new HashMap<String, String>();
+
+    SchemaCatalog(Collection<RestDocumentation.RestApi.Resource> resources) {
+        for (RestDocumentation.RestApi.Resource resource : resources) {
+            for (RestDocumentation.RestApi.Resource.Method method : resource.getRequestMethodDocs()) {
+                add(method.getRequestSchema(), method.getRequestBody());
+                add(method.getResponseSchema(), method.getResponseBody());
+            }
+        }
+    }
+
+    private void add(String schema, JsonType body) {
+        if (schema == null || _names.containsKey(schema.trim()))
+            return;
+        String base = getBaseName(body);
+        String name = base;
+        for (int i = 2; _schemas.containsKey(name); i++)
+            name = base + i;
+        _schemas.put(name, schema.trim());
+        _names.put(schema.trim(), name);
+    }
+
+    private static String getBaseName(JsonType body) {
+        if (body instanceof JsonArray)
+            return getBaseName(((JsonArray) body).getElementType()) + "Array";
+        if (body instanceof JsonObject && ((JsonObject) body).getTypeName() != null) {
+            // the simple name of the type, without its type arguments, in characters fit for a schema name
+            String typeName = ((JsonObject) body).getTypeName().replaceAll("<.*", "");
+            String name = typeName.substring(typeName.lastIndexOf('.') + 1).replaceAll("[^A-Za-z0-9_]", "_");
+            if (!name.isEmpty())
+                return name;
+        }
+        return "schema";
+    }
+
+    /**
+     * The schemas, trimmed, by name, sorted by name.
+     */
+    public SortedMap<String, String> getSchemas() {
+        return Collections.unmodifiableSortedMap(_schemas);
+    }
+
+    /**
+     * The names of the schemas, by trimmed schema.
+     */
+    public Map<String, String> getNames() {
+        return Collections.unmodifiableMap(_names);
+    }
+
+    /**
+     * The name of <code>schema</code>, or <code>null</code> if no method of the API uses it.
+     */
+    public String getName(String schema) {
+        return schema == null ? null : _names.get(schema.trim());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * An index of the doc scopes of an API's methods. Methods are numbered in resource order, so that each resource's
+ * methods have consecutive ids, and each scope maps to the set of ids of the methods in it. Filtering the API by a
+ * scope then only needs a bit test per method, and filtering it by several scopes only reads the methods' scopes
+ * once.
+ */
+class ScopeIndex {
+    private static final BitSet EMPTY = new BitSet(0);
+
+    private final Map<RestDocumentation.RestApi.Resource, Integer> _resourceIndexes =
+            new IdentityHashMap<RestDocumentation.RestApi.Resource, Integer>();
+    private final int[] _firstMethodIds;
+    private final Map<String, BitSet> _scopes = new HashMap<String, BitSet>();
+
+    ScopeIndex(RestDocumentation.RestApi api) {
+        Collection<RestDocumentation.RestApi.Resource> resources = api.getResources();
+        _firstMethodIds = new int[resources.size() + 1];
+        int resourceIndex = 0;
+        int methodId = 0;
+        for (RestDocumentation.RestApi.Resource resource : resources) {
+            _resourceIndexes.put(resource, resourceIndex);
+            _firstMethodIds[resourceIndex++] = methodId;
+            for (RestDocumentation.RestApi.Resource.Method method : resource.getRequestMethodDocs()) {
+                if (method.getDocScopes() != null) {
+                    for (String scope : method.getDocScopes()) {
+                        BitSet methodIds = _scopes.get(scope);
+                        if (methodIds == null)
+                            _scopes.put(scope, methodIds = new BitSet());
+                        methodIds.set(methodId);
+                    }
+                }
+                methodId++;
+            }
+        }
+        _firstMethodIds[resourceIndex] = methodId;
+    }
+
+    /**
+     * Whether <code>resource</code> has any methods in <code>scope</code>, or <code>null</code> if it isn't one of
+     * the indexed API's resources.
+     */
+    Boolean hasMethodsInScope(RestDocumentation.RestApi.Resource resource, String scope) {
+        Integer index = _resourceIndexes.get(resource);
+        if (index == null)
+            return null;
+        int next = getMethodIds(scope).nextSetBit(_firstMethodIds[index]);
+        return next >= 0 && next < _firstMethodIds[index + 1];
+    }
+
+    /**
+     * The positions, among <code>resource</code>'s methods, of the methods in <code>scope</code>, or
+     * <code>null</code> if it isn't one of the indexed API's resources.
+     */
+    BitSet getMethodsInScope(RestDocumentation.RestApi.Resource resource, String scope) {
+        Integer index = _resourceIndexes.get(resource);
+        if (index == null)
+            return null;
+        return getMethodIds(scope).get(_firstMethodIds[index], _firstMethodIds[index + 1]);
+    }
+
+    private BitSet getMethodIds(String scope) {
+        BitSet methodIds = _scopes.get(scope);
+        return methodIds == null ? EMPTY : methodIds;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A small, immutable set of strings backed by an array, used for the doc scopes, traits and authorization scopes of
+ * every method. Lookups are linear, which is faster than hashing for the handful of entries these sets hold. It
+ * iterates in the order of the collection it was copied from, so rendered output is unaffected by the copy.
+ */
+final class StringSet extends AbstractSet<String> {
+    static final StringSet EMPTY = new StringSet(new String[0]);
+
+    private final String[] _strings;
+
+    private StringSet(String[] strings) {
+        _strings = strings;
+    }
+
+    /**
+     * An immutable copy of <code>strings</code> (without duplicates), or <code>null</code> if it is
+     * <code>null</code>. Empty collections all share the same instance.
+     */
+    static Set<String> copyOf(Collection<String> strings) {
+        if (strings == null)
+            return null;
+        if (strings instanceof StringSet)
+            return (StringSet) strings;
+        if (strings.isEmpty())
+            return EMPTY;
+        String[] array = strings.toArray(new String[strings.size()]);
+        if (!(strings instanceof Set)) {
+            int size = 0;
+            for (String string : array) {
+                if (indexOf(array, size, string) < 0)
+                    array[size++] = string;
+            }
+            array = Arrays.copyOf(array, size);
+        }
+        return new StringSet(array);
+    }
+
+    /**
+     * A mutable copy of <code>strings</code>, sized the way {@link HashSet} deserialization sizes it, or
+     * <code>null</code> if it is <code>null</code>.
+     */
+    static HashSet<String> toHashSet(Collection<String> strings) {
+        if (strings == null)
+            return null;
+        HashSet<String> set = new HashSet<String>((int) Math.min(strings.size() * (1 / 0.75f), 1 << 30));
+        set.addAll(strings);
+        return set;
+    }
+
+    private static int indexOf(String[] strings, int length, Object string) {
+        for (int i = 0; i < length; i++) {
+            if (strings[i].equals(string))
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object string) {
+        return indexOf(_strings, _strings.length, string) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return _strings.length;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int _next;
+
+            @Override
+            public boolean hasNext() {
+                return _next < _strings.length;
+            }
+
+            @Override
+            public String next() {
+                if (_next == _strings.length)
+                    throw new NoSuchElementException();
+                return _strings[_next++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
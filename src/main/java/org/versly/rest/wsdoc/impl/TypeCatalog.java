@@ -0,0 +1,126 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The named object types used by the methods of an API, by qualified type name. When interning, every use of a
+ * type name is also made to refer to the same {@link JsonObject}, so that each type is stored, written and
+ * rendered once however many methods use it.
+ */
+class TypeCatalog {
+    private final boolean _intern;
+    private final SortedMap<String, JsonObject> _types = new TreeMap<String, JsonObject>();
+    private final Map<JsonType, Boolean> _visited = new IdentityHashMap<JsonType, Boolean>();
+    private final Map<JsonType, Boolean> _inProgress = new IdentityHashMap<JsonType, Boolean>();
+
+    private TypeCatalog(boolean intern) {
+        _intern = intern;
+    }
+
+    /**
+     * The named types used by the methods of <code>resources</code>, sorted by name. Where several objects have
+     * the same name, the first one found is listed.
+     */
+    static SortedMap<String, JsonObject> collect(Collection<RestDocumentation.RestApi.Resource> resources) {
+        TypeCatalog catalog = new TypeCatalog(false);
+        catalog.addAll(resources);
+        return Collections.unmodifiableSortedMap(catalog._types);
+    }
+
+    /**
+     * Replace every named object used by the methods of <code>resources</code> with the first object found with
+     * the same name.
+     */
+    static void intern(Collection<RestDocumentation.RestApi.Resource> resources) {
+        new TypeCatalog(true).addAll(resources);
+    }
+
+    private void addAll(Collection<RestDocumentation.RestApi.Resource> resources) {
+        for (RestDocumentation.RestApi.Resource resource : resources) {
+            for (RestDocumentation.RestApi.Resource.Method method : resource.getRequestMethodDocs()) {
+                JsonType requestBody = add(method.getRequestBody());
+                if (requestBody != method.getRequestBody())
+                    method.setRequestBody(requestBody);
+                JsonType responseBody = add(method.getResponseBody());
+                if (responseBody != method.getResponseBody())
+                    method.setResponseBody(responseBody);
+                // without creating the URL fields of the methods that have none
+                addAll(method.peekUrlSubstitutions());
+                addAll(method.peekUrlParameters());
+            }
+        }
+    }
+
+    private void addAll(RestDocumentation.RestApi.Resource.UrlFields fields) {
+        if (fields == null)
+            return;
+        for (int i = 0; i < fields.size(); i++) {
+            RestDocumentation.RestApi.Resource.UrlFields.UrlField field = fields.getField(i);
+            JsonType type = add(field.getFieldType());
+            if (type != field.getFieldType())
+                field.setFieldType(type);
+        }
+    }
+
+    /**
+     * Add the named objects in <code>type</code>, and return the object to use in its place: the first object with
+     * the same name when interning, unless that object contains this one, or <code>type</code> itself.
+     */
+    @SuppressWarnings("unchecked")
+    private JsonType add(JsonType type) {
+        if (type instanceof JsonObject) {
+            JsonObject object = (JsonObject) type;
+            if (object.getTypeName() != null) {
+                JsonObject known = _types.get(object.getTypeName());
+                if (known == null)
+                    _types.put(object.getTypeName(), object);
+                else if (known != object && (!_intern || !_inProgress.containsKey(known)))
+                    return _intern ? known : object;
+            }
+            if (_visited.put(object, Boolean.TRUE) == null) {
+                _inProgress.put(object, Boolean.TRUE);
+                for (JsonObject.JsonField field : object.getFields()) {
+                    JsonType fieldType = add(field.getFieldType());
+                    if (fieldType != field.getFieldType())
+                        field.setFieldType(fieldType);
+                }
+                _inProgress.remove(object);
+            }
+        } else if (type instanceof JsonArray) {
+            JsonArray array = (JsonArray) type;
+            JsonType elementType = add(array.getElementType());
+            if (elementType != array.getElementType())
+                array.setElementType(elementType);
+        } else if (type instanceof JsonDict) {
+            JsonDict dict = (JsonDict) type;
+            JsonType keyType = add(dict.getKeyType());
+            if (keyType != dict.getKeyType())
+                dict.setKeyType(keyType);
+            JsonType valueType = add(dict.getValueType());
+            if (valueType != dict.getValueType())
+                dict.setValueType(valueType);
+        }
+        return type;
+    }
+}
@@ -18,6 +18,15 @@ documentation:
       content: |
 ${api.indentedApiDocumentationText(10)}
 </#if>
+<#assign schemas=api.schemas>
+<#if schemas?size gt 0>
+
+schemas:
+<#list schemas?keys as name>
+    - ${name}: |
+          ${schemas[name]}
+</#list>
+</#if>
 
 securitySchemes:
     - oauth_2_0:
@@ -148,7 +157,7 @@ ${methodDoc.indentedCommentText(depth+4)}
 <#macro write_parameter_info field depth>
 <#list 1..depth as i> </#list>description: |
 <#list 1..depth as i> </#list>    ${field.fieldDescription!}
-<#if field.fieldType.class.name == "org.versly.rest.wsdoc.impl.JsonPrimitive">
+<#if field.fieldType.kind == "primitive">
 <#list 1..depth as i> </#list>type: <@write_raml_type field.fieldType.typeName/>
 <#if field.fieldType.restrictions??><#t>
 <#list 1..depth as i> </#list>enum: [ <#list field.fieldType.restrictions as restricton>${restricton}<#if restricton_has_next>, </#if></#list> ]</#if>
@@ -162,8 +171,10 @@ ${methodDoc.indentedCommentText(depth+4)}
   -- write out request or response body
   -->
 <#macro write_body schema example depth>
+<@fragments schema=schema example=example depth=depth>
 <#list 1..depth as i> </#list>body:
 <@write_body_media_type schema=schema example=example depth=depth+4/>
+</@fragments>
 </#macro>
 
 
@@ -179,11 +190,10 @@ ${methodDoc.indentedCommentText(depth+4)}
 
 
 <#--
-  -- write out all url parameters for a method
+  -- write out the name of a body's schema, which is listed in the schemas section
   -->
 <#macro write_body_schema schema depth>
-<#list 1..depth as i> </#list>schema: |
-<#list 1..depth as i> </#list>    ${schema?trim}
+<#list 1..depth as i> </#list>schema: ${api.schemaNames[schema?trim]}
 </#macro>
 
 <#macro write_body_example example depth>
@@ -40,6 +40,9 @@
 
             div.body-title { width: 400px; border-bottom: 1px dashed gray; }
 
+            div.type { border-top: 1px solid gray; padding-top: 5px; margin-top: 15px; }
+            div.type-header { font-family: monospace; font-size: 18px; font-weight: bold; padding-bottom: 15px; }
+
             div.body-contents { font-family: monospace; }
             div.json-field { padding-left: 15px; }
             span.json-field-name { font-weight: bold; }
@@ -55,7 +58,7 @@
                 <div class="resource-summary">
                     <span class="resource-summary-path">${resource.path}</span>
                     <div>
-                        <#list resource.requestMethodDocs?sort_by("requestMethod") as methodDoc>
+                        <#list resource.sortedRequestMethodDocs as methodDoc>
                             <a href="#${methodDoc.key}">${methodDoc.requestMethod}</a>
                         </#list>
                     </div>
@@ -144,19 +147,42 @@
                     </div>
                 </#list>
             </#list>
+
+            <#-- the named types used by the methods above, which link to them rather than repeating them -->
+            <#assign catalog=api.typeCatalog>
+            <#if (catalog?size > 0)>
+        <div class="section-title">Types</div>
+                <#list catalog?keys as typeName>
+                    <a id="type-${typeName?html}"/>
+                    <div class="type">
+                        <div class="type-header">${typeName?html}</div>
+                        <div class="body-contents"><@render_json_type catalog[typeName]/></div>
+                    </div>
+                </#list>
+            </#if>
     </body>
 </html>
 
+<#-- render each distinct type once per page, and repeat its markup wherever else it appears; named types are
+  -- rendered in the types section, and linked to -->
 <#macro render_json json>
-    <#if json.class.name == "org.versly.rest.wsdoc.impl.JsonPrimitive">
+    <#if json.kind == "object" && json.typeName??>
+        <a class="json-type-ref" href="#type-${json.typeName?html}">${json.typeName?html}</a><#t>
+    <#else>
+        <@fragments type=json><@render_json_type json/></@fragments>
+    </#if>
+</#macro>
+
+<#macro render_json_type json>
+    <#if json.kind == "primitive">
         <@render_json_primitive json/>
-    <#elseif json.class.name == "org.versly.rest.wsdoc.impl.JsonObject">
+    <#elseif json.kind == "object">
         <@render_json_object json/>
-    <#elseif json.class.name == "org.versly.rest.wsdoc.impl.JsonRecursiveObject">
+    <#elseif json.kind == "recursive">
         <@render_json_recursive_object json/>
-    <#elseif json.class.name == "org.versly.rest.wsdoc.impl.JsonArray">
+    <#elseif json.kind == "array">
         <@render_json_array json/>
-    <#elseif json.class.name == "org.versly.rest.wsdoc.impl.JsonDict">
+    <#elseif json.kind == "dict">
         <@render_json_dict json/>
     </#if>
 </#macro>
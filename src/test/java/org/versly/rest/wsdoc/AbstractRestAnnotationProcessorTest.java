@@ -8,6 +8,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,6 +27,9 @@ import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.raml.model.Action;
 import org.raml.model.ActionType;
 import org.raml.model.DocumentationItem;
@@ -37,8 +42,11 @@ import org.raml.model.parameter.UriParameter;
 import org.raml.parser.visitor.RamlDocumentBuilder;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
+import org.versly.rest.wsdoc.impl.MappedRestDocumentationReader;
+import org.versly.rest.wsdoc.impl.ProcessingLevel;
 import org.versly.rest.wsdoc.impl.RestDocumentation;
 import org.versly.rest.wsdoc.impl.Utils;
+import org.yaml.snakeyaml.Yaml;
 
 import freemarker.template.TemplateException;
 
@@ -68,6 +76,12 @@ public abstract class AbstractRestAnnotationProcessorTest {
             String outputFile = tmpDir + "/" + fileName.replace(".java", "." + outputFormat);
             List<String> filesWritten = buildOutput(tmpDir, outputFile, outputFormat, excludes, scope);
             readOutput(outputFile, filesWritten);
+            if (outputFormat.equals("html")) {
+                assertFastHtmlMatches(outputFile, filesWritten, excludes, scope);
+                assertOpenApiIsConsistent(outputFile, excludes, scope);
+            }
+            else if (outputFormat.equals("raml"))
+                assertFastRamlMatches(outputFile, filesWritten, excludes, scope);
         } catch (Exception ex) {
             if (ex instanceof RuntimeException)
                 throw (RuntimeException) ex;
@@ -80,13 +94,95 @@ public abstract class AbstractRestAnnotationProcessorTest {
             File buildDir, String outputFile, String outputFormat, Iterable<Pattern> excludes, String scope)
         throws ClassNotFoundException, IOException, TemplateException {
 
-        final InputStream in = new FileInputStream(new File(buildDir, Utils.SERIALIZED_RESOURCE_LOCATION));
+        // read only the sections needed for the scope, as the assembler does
+        final RestDocumentation docs = MappedRestDocumentationReader.read(
+                new File(buildDir, Utils.SERIALIZED_RESOURCE_LOCATION), null, scope);
 
         // make the parent dirs in case htmlFile is nested
         new File(outputFile).getParentFile().mkdirs();
 
         return new RestDocAssembler(outputFile, outputFormat).writeDocumentation(
-                new LinkedList<RestDocumentation>() {{ add(RestDocumentation.fromStream(in)); }}, excludes, scope);
+                new LinkedList<RestDocumentation>() {{ add(docs); }}, excludes, scope);
+    }
+
+    /**
+     * Check that the html-fast format writes exactly the same files as the html template.
+     */
+    private static void assertFastHtmlMatches(
+            String outputFile, List<String> filesWritten, Iterable<Pattern> excludes, String scope)
+        throws ClassNotFoundException, IOException, TemplateException {
+        String fastOutputFile = outputFile.substring(0, outputFile.length() - ".html".length()) + "-fast.html";
+        List<String> fastFilesWritten = buildOutput(tmpDir, fastOutputFile, "html-fast", excludes, scope);
+        AssertJUnit.assertEquals(filesWritten.size(), fastFilesWritten.size());
+        for (int i = 0; i < filesWritten.size(); i++) {
+            AssertJUnit.assertEquals(fastFilesWritten.get(i),
+                    new String(Files.readAllBytes(new File(filesWritten.get(i)).toPath()), "UTF-8"),
+                    new String(Files.readAllBytes(new File(fastFilesWritten.get(i)).toPath()), "UTF-8"));
+        }
+    }
+
+    /**
+     * Check that the raml-fast format describes the same resources as the raml template, once both are read as
+     * YAML; strings are compared without their surrounding whitespace, which differs in block scalars.
+     */
+    private static void assertFastRamlMatches(
+            String outputFile, List<String> filesWritten, Iterable<Pattern> excludes, String scope)
+        throws ClassNotFoundException, IOException, TemplateException {
+        String fastOutputFile = outputFile.substring(0, outputFile.length() - ".raml".length()) + "-fast.raml";
+        List<String> fastFilesWritten = buildOutput(tmpDir, fastOutputFile, "raml-fast", excludes, scope);
+        AssertJUnit.assertEquals(filesWritten.size(), fastFilesWritten.size());
+        for (int i = 0; i < filesWritten.size(); i++) {
+            String raml = new String(Files.readAllBytes(new File(filesWritten.get(i)).toPath()), "UTF-8");
+            String fastRaml = new String(Files.readAllBytes(new File(fastFilesWritten.get(i)).toPath()), "UTF-8");
+            AssertJUnit.assertTrue(fastRaml.startsWith("#%RAML 0.8\n"));
+            AssertJUnit.assertEquals(fastFilesWritten.get(i),
+                    normalizeYaml(new Yaml().load(raml)), normalizeYaml(new Yaml().load(fastRaml)));
+        }
+    }
+
+    /**
+     * Check that the openapi and openapi-yaml formats write the same document, and that the schemas it refers to
+     * are all defined.
+     */
+    private static void assertOpenApiIsConsistent(String outputFile, Iterable<Pattern> excludes, String scope)
+        throws ClassNotFoundException, IOException, TemplateException {
+        String baseName = outputFile.substring(0, outputFile.length() - ".html".length());
+        List<String> jsonFilesWritten = buildOutput(tmpDir, baseName + ".json", "openapi", excludes, scope);
+        List<String> yamlFilesWritten = buildOutput(tmpDir, baseName + ".yaml", "openapi-yaml", excludes, scope);
+        AssertJUnit.assertEquals(jsonFilesWritten.size(), yamlFilesWritten.size());
+        for (int i = 0; i < jsonFilesWritten.size(); i++) {
+            JsonNode openApi = new ObjectMapper().readTree(new File(jsonFilesWritten.get(i)));
+            AssertJUnit.assertEquals(openApi, new ObjectMapper(new YAMLFactory()).readTree(
+                    new File(yamlFilesWritten.get(i))));
+            AssertJUnit.assertEquals("3.0.0", openApi.get("openapi").asText());
+            assertReferencesDefined(openApi, openApi.path("components").path("schemas"));
+        }
+    }
+
+    private static void assertReferencesDefined(JsonNode node, JsonNode schemas) {
+        if (node.has("$ref")) {
+            String ref = node.get("$ref").asText();
+            AssertJUnit.assertTrue(ref, ref.startsWith("#/components/schemas/"));
+            AssertJUnit.assertTrue(ref, schemas.has(ref.substring("#/components/schemas/".length())));
+        }
+        for (JsonNode child : node)
+            assertReferencesDefined(child, schemas);
+    }
+
+    private static Object normalizeYaml(Object yaml) {
+        if (yaml instanceof Map) {
+            Map<String, Object> normalized = new LinkedHashMap<String, Object>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) yaml).entrySet())
+                normalized.put(String.valueOf(entry.getKey()), normalizeYaml(entry.getValue()));
+            return normalized;
+        }
+        if (yaml instanceof List) {
+            List<Object> normalized = new ArrayList<Object>();
+            for (Object element : (List<?>) yaml)
+                normalized.add(normalizeYaml(element));
+            return normalized;
+        }
+        return yaml == null ? null : String.valueOf(yaml).trim().replaceAll("\\s*\n\\s*", "\n");
     }
 
     private static void readOutput(String outputFile, List<String> filesWritten) throws IOException {
@@ -114,7 +210,7 @@ public abstract class AbstractRestAnnotationProcessorTest {
     }
 
     protected static void runAnnotationProcessor(
-            File buildDir, final String packagePrefix, final String fileName)
+            File buildDir, final String packagePrefix, final String fileName, String... options)
             throws URISyntaxException, IOException {
         AnnotationProcessor processor = new AnnotationProcessor();
 
@@ -135,7 +231,7 @@ public abstract class AbstractRestAnnotationProcessorTest {
         };
 
         Collection<JavaFileObject> files = Collections.singleton(file);
-        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, null, null, files);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, Arrays.asList(options), null, files);
         task.setProcessors(Collections.singleton(processor));
         AssertJUnit.assertTrue(task.call());
     }
@@ -567,6 +663,41 @@ public abstract class AbstractRestAnnotationProcessorTest {
         AssertJUnit.assertTrue("RAML twoscope secref parameters does not include two_scope_service:admin scope", scopes.contains("two_scope_service:admin"));
     }
 
+    @Test
+    public void processingLevels() throws Exception {
+        String packagePrefix = "org/versly/rest/wsdoc/" + getPackageToTest() + "/";
+        runAnnotationProcessor(tmpDir, packagePrefix, "RestDocEndpoint.java",
+                "-A" + AnnotationProcessor.LEVEL_OPTION + "=endpoints");
+        RestDocumentation docs = RestDocumentation.fromStream(
+                new FileInputStream(new File(tmpDir, Utils.SERIALIZED_RESOURCE_LOCATION)));
+        AssertJUnit.assertEquals(ProcessingLevel.ENDPOINTS, docs.getProcessingLevel());
+        for (RestDocumentation.RestApi api : docs.getApis()) {
+            for (RestDocumentation.RestApi.Resource resource : api.getResources()) {
+                for (RestDocumentation.RestApi.Resource.Method method : resource.getRequestMethodDocs()) {
+                    AssertJUnit.assertNull("no response body expected at the endpoints level", method.getResponseBody());
+                    AssertJUnit.assertNull("no response schema expected at the endpoints level", method.getResponseSchema());
+                }
+            }
+        }
+
+        String outputFile = tmpDir + "/RestDocEndpoint-endpoints.html";
+        List<String> filesWritten = new RestDocAssembler(outputFile, "html").writeDocumentation(
+                Collections.singletonList(docs), null, "all");
+        readOutput(outputFile, filesWritten);
+        AssertJUnit.assertTrue("expected endpoints in doc string; got: \n" + defaultApiOutput,
+                defaultApiOutput.contains("dateParam"));
+        AssertJUnit.assertFalse("expected no response bodies in doc string; got: \n" + defaultApiOutput,
+                defaultApiOutput.contains("Response Body"));
+
+        RestDocAssembler assembler = new RestDocAssembler(outputFile, "html");
+        assembler.setRequiredLevel(ProcessingLevel.FULL);
+        try {
+            assembler.writeDocumentation(Collections.singletonList(docs), null, "all");
+            AssertJUnit.fail("expected documentation below the required level to be refused");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
     @Test
     public void docTemplate() {
         String mountPoint = "/foo";
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.versly.rest.wsdoc.impl.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class RestDocAssemblerTest {
+
+    @Test
+    public void writesSeveralScopesInOneRun() throws Exception {
+        RestDocumentation docs = SampleDocs.newDocs();
+        SampleDocs.getMethod(docs, "/widgets/{id}", "PUT").setDocScopes(Arrays.asList("private"));
+        File dir = File.createTempFile("wsdoc-scopes", "");
+        dir.delete();
+        dir.mkdirs();
+        RestDocAssembler assembler = new RestDocAssembler(new File(dir, "widgets.html").getPath(), "html");
+        List<String> filesWritten = assembler.writeDocumentation(
+                Collections.singletonList(docs), null, Arrays.asList("public", "private", "internal"));
+        AssertJUnit.assertEquals(Arrays.asList(new File(dir, "widgets-widgets-public.html").getPath(),
+                new File(dir, "widgets-widgets-private.html").getPath()), filesWritten);
+
+        RestDocumentation.RestApi api = docs.getApis().iterator().next();
+        RestDocumentation.RestApi.Resource resource = api.filter(null, "private").getResources().iterator().next();
+        AssertJUnit.assertEquals(1, resource.getRequestMethodDocs().size());
+        AssertJUnit.assertEquals("PUT", resource.getRequestMethodDocs().iterator().next().getRequestMethod());
+        AssertJUnit.assertTrue(api.filter(null, "internal").getResources().isEmpty());
+        AssertJUnit.assertEquals(2, api.filter(null, "all").getResources().size());
+    }
+
+    @Test
+    public void readsAndMergesInputsConcurrentlyInOrder() throws Exception {
+        List<String> inputs = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            RestDocumentation docs = new RestDocumentation();
+            RestDocumentation.RestApi api = docs.getRestApi("widgets");
+            api.getResourceDocumentation("/widgets/" + i).newMethodDocumentation("GET");
+            File file = File.createTempFile("wsdoc", ".ser");
+            file.deleteOnExit();
+            FileOutputStream out = new FileOutputStream(file);
+            docs.toStream(out);
+            out.close();
+            inputs.add(file.getPath());
+        }
+
+        File output = File.createTempFile("wsdoc", ".html");
+        output.deleteOnExit();
+        RestDocAssembler assembler = new RestDocAssembler(output.getPath(), "html");
+        assembler.setThreads(3);
+        List<RestDocumentation> docs = assembler.readDocumentation(
+                inputs, null, Collections.singletonList("all"));
+        for (int i = 0; i < 5; i++) {
+            AssertJUnit.assertNotNull(docs.get(i).getApis().iterator().next().getResourceDocumentation("/widgets/" + i)
+                    .getRequestMethodDocs().iterator().next());
+        }
+
+        String html = new String(Files.readAllBytes(new File(
+                assembler.writeDocumentation(docs, null, "all").get(0)).toPath()), "UTF-8");
+        int last = -1;
+        for (int i = 0; i < 5; i++) {
+            int position = html.indexOf("/widgets/" + i + "<");
+            AssertJUnit.assertTrue("expected resources in input order", position > last);
+            last = position;
+        }
+    }
+
+    @Test
+    public void writesSeveralFormatsInOneRun() throws Exception {
+        File output = File.createTempFile("wsdoc", ".html");
+        output.deleteOnExit();
+        String baseName = output.getPath().substring(0, output.getPath().length() - ".html".length());
+        RestDocumentation docs = SampleDocs.newDocs();
+        // the annotation processor always sets the traits, and examples along with schemas, which RAML lists
+        for (String method : Arrays.asList("GET", "PUT"))
+            SampleDocs.getMethod(docs, "/widgets/{id}", method).setTraits(Arrays.asList("paged"));
+        SampleDocs.getMethod(docs, "/widgets/{id}", "PUT").setRequestExample("{}");
+        RestDocAssembler assembler = new RestDocAssembler(output.getPath(), Arrays.asList("html", "RAML", "html"));
+        List<String> filesWritten = assembler.writeDocumentation(
+                Collections.singletonList(docs), null, Arrays.asList("public", "all"));
+        AssertJUnit.assertEquals(Arrays.asList(baseName + "-widgets-public.html", baseName + "-widgets-public.raml",
+                baseName + "-widgets-all.html", baseName + "-widgets-all.raml"), filesWritten);
+        for (String fileWritten : filesWritten)
+            new File(fileWritten).deleteOnExit();
+        AssertJUnit.assertTrue(new String(Files.readAllBytes(new File(filesWritten.get(1)).toPath()), "UTF-8")
+                .startsWith("#%RAML"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsUnknownOutputFormats() throws Exception {
+        new RestDocAssembler("api.pdf", "pdf");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsOutputFormatsWithTheSameExtension() throws Exception {
+        new RestDocAssembler("api.html", Arrays.asList("html", "html-fast"));
+    }
+
+    @Test
+    public void reportsEveryFailedOutput() throws Exception {
+        RestDocumentation docs = SampleDocs.newDocs();
+        docs.getRestApi("gadgets").getResourceDocumentation("/gadgets").newMethodDocumentation("GET");
+        File missingDirectory = new File(File.createTempFile("wsdoc", ""), "missing");
+        try {
+            new RestDocAssembler(new File(missingDirectory, "api.html").getPath()).writeDocumentation(
+                    Collections.singletonList(docs), null, "all");
+            AssertJUnit.fail("expected writing to a missing directory to fail");
+        } catch (IOException expected) {
+            AssertJUnit.assertEquals(1, expected.getSuppressed().length);
+        }
+    }
+
+    @Test
+    public void readsDocsFromNestedArchives() throws Exception {
+        // an EAR holding a WAR, whose classes and one of whose library jars have docs
+        ByteArrayOutputStream jar = new ByteArrayOutputStream();
+        ZipOutputStream jarOut = new ZipOutputStream(jar);
+        addEntry(jarOut, "org/example/Widgets.class", new byte[10]);
+        addEntry(jarOut, Utils.SERIALIZED_RESOURCE_LOCATION, SampleDocs.toBinary(SampleDocs.newDocs()));
+        jarOut.close();
+        RestDocumentation classesDocs = new RestDocumentation();
+        classesDocs.getRestApi("gadgets").getResourceDocumentation("/gadgets").newMethodDocumentation("GET");
+        ByteArrayOutputStream war = new ByteArrayOutputStream();
+        ZipOutputStream warOut = new ZipOutputStream(war);
+        addEntry(warOut, "WEB-INF/classes/" + Utils.SERIALIZED_RESOURCE_LOCATION, SampleDocs.toBinary(classesDocs));
+        ByteArrayOutputStream emptyJar = new ByteArrayOutputStream();
+        new ZipOutputStream(emptyJar).close();
+        addEntry(warOut, "WEB-INF/lib/other.jar", emptyJar.toByteArray());
+        addEntry(warOut, "WEB-INF/lib/widgets.jar", jar.toByteArray());
+        warOut.close();
+        File ear = File.createTempFile("wsdoc", ".ear");
+        ear.deleteOnExit();
+        ZipOutputStream earOut = new ZipOutputStream(new FileOutputStream(ear));
+        addEntry(earOut, "META-INF/application.xml", new byte[0]);
+        addEntry(earOut, "services.war", war.toByteArray());
+        earOut.close();
+
+        List<RestDocumentation> docs = new RestDocAssembler("unused.html").readDocumentation(
+                Collections.singletonList(ear.getPath()), null, Collections.singletonList("all"));
+        AssertJUnit.assertEquals(2, docs.size());
+        AssertJUnit.assertEquals("gadgets", docs.get(0).getApis().iterator().next().getIdentifier());
+        SampleDocs.assertDocs(docs.get(1));
+    }
+
+    private static void addEntry(ZipOutputStream out, String name, byte[] content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.versly.rest.wsdoc.impl.RestDocumentation;
+import org.versly.rest.wsdoc.impl.Utils;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class RestDocExtractorTest {
+    private File tmpDir;
+    private File sourceRoot;
+
+    @BeforeClass
+    public void setUp() throws IOException, URISyntaxException {
+        tmpDir = new File(System.getProperty("java.io.tmpdir"), "wsdoc-extractor-" + System.currentTimeMillis());
+        tmpDir.mkdirs();
+        tmpDir.deleteOnExit();
+        sourceRoot = new File(getClass().getClassLoader().getResource("org/versly/rest/wsdoc/jaxrs").toURI())
+                .getParentFile().getParentFile().getParentFile().getParentFile().getParentFile();
+    }
+
+    @Test
+    public void extractsEachModuleConcurrently() throws Exception {
+        File snowReport = compileModule("snow-report", "org/versly/rest/wsdoc/jaxrs/SnowReportController.java");
+        File allMethods = compileModule("all-methods", "org/versly/rest/wsdoc/jaxrs/AllMethods.java");
+        File out = new File(tmpDir, "out");
+
+        RestDocExtractor extractor = new RestDocExtractor(classpath(), Collections.<String>emptyList(), out);
+        List<String> inputs = Arrays.asList(snowReport.getPath(), allMethods.getPath());
+        List<String> failed = extractor.extract(inputs, 2);
+        AssertJUnit.assertTrue("expected no failed modules; got " + failed, failed.isEmpty());
+
+        Map<String, File> directories = extractor.getModuleOutputDirectories(inputs);
+        RestDocumentation.RestApi api = readDefaultApi(directories.get(snowReport.getPath()));
+        AssertJUnit.assertNotNull("expected snow report resource",
+                findResource(api, "/snow-report/{mountainId}"));
+        AssertJUnit.assertNull("javadoc should not be available without sources",
+                findResource(api, "/snow-report/{mountainId}").getRequestMethodDocs().iterator().next().getCommentText());
+
+        api = readDefaultApi(directories.get(allMethods.getPath()));
+        AssertJUnit.assertTrue("expected several resources for AllMethods", api.getResources().size() > 1);
+    }
+
+    @Test
+    public void readsJavadocFromSourcepath() throws Exception {
+        File snowReport = compileModule("snow-report-src", "org/versly/rest/wsdoc/jaxrs/SnowReportController.java");
+        File out = new File(tmpDir, "out-src");
+
+        RestDocExtractor extractor = new RestDocExtractor(
+                classpath(), Collections.singletonList(sourceRoot.getPath()), out);
+        List<String> failed = extractor.extract(Collections.singletonList(snowReport.getPath()), 1);
+        AssertJUnit.assertTrue("expected no failed modules; got " + failed, failed.isEmpty());
+
+        RestDocumentation.RestApi api = readDefaultApi(outputDirectory(extractor, snowReport));
+        String comment = findResource(api, "/snow-report/{mountainId}").getRequestMethodDocs().iterator().next()
+                .getCommentText();
+        AssertJUnit.assertTrue("expected javadoc from sources; got " + comment,
+                comment != null && comment.contains("Retrieves the current snow report"));
+    }
+
+    @Test
+    public void readsJavadocFromSourcesOffTheClasspath() throws Exception {
+        String source = "org/versly/rest/wsdoc/jaxrs/SnowReportController.java";
+        File snowReport = compileModule("snow-report-copied", source);
+        File sources = new File(tmpDir, "sources");
+        File copy = new File(sources, source);
+        copy.getParentFile().mkdirs();
+        Files.copy(new File(sourceRoot, source).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        // leave the test sources, which are also test resources, off the extractor's classpath
+        List<String> classpath = new ArrayList<String>();
+        for (String entry : classpath()) {
+            if (!new File(entry).getCanonicalFile().equals(sourceRoot.getCanonicalFile()))
+                classpath.add(entry);
+        }
+
+        File out = new File(tmpDir, "out-copied");
+        RestDocExtractor extractor = new RestDocExtractor(classpath, Collections.<String>emptyList(), out);
+        AssertJUnit.assertTrue(extractor.extract(Collections.singletonList(snowReport.getPath()), 1).isEmpty());
+        RestDocumentation.RestApi api = readDefaultApi(outputDirectory(extractor, snowReport));
+        AssertJUnit.assertNull(findResource(api, "/snow-report/{mountainId}").getRequestMethodDocs().iterator().next()
+                .getCommentText());
+
+        out = new File(tmpDir, "out-copied-src");
+        extractor = new RestDocExtractor(classpath, Collections.singletonList(sources.getPath()), out);
+        AssertJUnit.assertTrue(extractor.extract(Collections.singletonList(snowReport.getPath()), 1).isEmpty());
+        api = readDefaultApi(outputDirectory(extractor, snowReport));
+        String comment = findResource(api, "/snow-report/{mountainId}").getRequestMethodDocs().iterator().next()
+                .getCommentText();
+        AssertJUnit.assertTrue("expected javadoc from sources; got " + comment,
+                comment != null && comment.contains("Retrieves the current snow report"));
+    }
+
+    @Test
+    public void writesModulesWithTheSameNameToSeparateDirectories() throws Exception {
+        File snowReport = compileModule("svc-a/target/classes",
+                "org/versly/rest/wsdoc/jaxrs/SnowReportController.java");
+        File allMethods = compileModule("svc-b/target/classes", "org/versly/rest/wsdoc/jaxrs/AllMethods.java");
+        File out = new File(tmpDir, "out-same-name");
+
+        RestDocExtractor extractor = new RestDocExtractor(classpath(), Collections.<String>emptyList(), out);
+        List<String> inputs = Arrays.asList(snowReport.getPath(), allMethods.getPath());
+        AssertJUnit.assertTrue(extractor.extract(inputs, 2).isEmpty());
+
+        Map<String, File> directories = extractor.getModuleOutputDirectories(inputs);
+        AssertJUnit.assertEquals(new File(out, "classes"), directories.get(snowReport.getPath()));
+        AssertJUnit.assertEquals(new File(out, "classes-2"), directories.get(allMethods.getPath()));
+        RestDocumentation.RestApi api = readDefaultApi(directories.get(snowReport.getPath()));
+        AssertJUnit.assertNotNull(findResource(api, "/snow-report/{mountainId}"));
+        api = readDefaultApi(directories.get(allMethods.getPath()));
+        AssertJUnit.assertNull(findResource(api, "/snow-report/{mountainId}"));
+        AssertJUnit.assertTrue(api.getResources().size() > 1);
+    }
+
+    private static File outputDirectory(RestDocExtractor extractor, File module) {
+        return extractor.getModuleOutputDirectories(Collections.singletonList(module.getPath())).get(module.getPath());
+    }
+
+    private File compileModule(String name, String source) throws IOException {
+        File classes = new File(tmpDir, name);
+        classes.mkdirs();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                    Arrays.asList("-proc:none", "-d", classes.getPath()), null,
+                    fileManager.getJavaFileObjects(new File(sourceRoot, source)));
+            AssertJUnit.assertTrue(task.call());
+        } finally {
+            fileManager.close();
+        }
+        return classes;
+    }
+
+    private static List<String> classpath() {
+        return Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator));
+    }
+
+    private static RestDocumentation.RestApi readDefaultApi(File dir) throws IOException, ClassNotFoundException {
+        File ser = new File(dir, Utils.SERIALIZED_RESOURCE_LOCATION);
+        AssertJUnit.assertTrue("expected intermediate file at " + ser, ser.exists());
+        RestDocumentation docs = RestDocumentation.fromStream(new FileInputStream(ser));
+        AssertJUnit.assertEquals(1, docs.getApis().size());
+        return docs.getApis().iterator().next();
+    }
+
+    private static RestDocumentation.RestApi.Resource findResource(RestDocumentation.RestApi api, String path) {
+        for (RestDocumentation.RestApi.Resource resource : api.getResources()) {
+            if (resource.getPath().equals(path))
+                return resource;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        AssertJUnit.assertTrue(cache.containsKey("a"));
+        AssertJUnit.assertFalse("least recently used entry should have been evicted", cache.containsKey("b"));
+        AssertJUnit.assertTrue(cache.containsKey("c"));
+        AssertJUnit.assertEquals(2, cache.getPeakEntries());
+        AssertJUnit.assertEquals(1, cache.getEvictions());
+        AssertJUnit.assertEquals(0, cache.getMemoryTrims());
+    }
+
+    @Test
+    public void memoizesNullValues() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(2);
+        cache.put("void", null);
+        AssertJUnit.assertTrue(cache.containsKey("void"));
+        AssertJUnit.assertNull(cache.get("void"));
+    }
+
+    @Test
+    public void clearKeepsPeak() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(10);
+        for (int i = 0; i < 5; i++)
+            cache.put(i, i);
+        cache.trimToSize(3);
+        AssertJUnit.assertEquals(3, cache.size());
+        cache.clear();
+        AssertJUnit.assertEquals(0, cache.size());
+        AssertJUnit.assertEquals(5, cache.getPeakEntries());
+    }
+}
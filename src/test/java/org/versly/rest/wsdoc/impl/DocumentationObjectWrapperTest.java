@@ -0,0 +1,44 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import freemarker.template.AdapterTemplateModel;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateScalarModel;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class DocumentationObjectWrapperTest {
+
+    @Test
+    public void wrapsTheModelForTemplates() throws Exception {
+        DocumentationObjectWrapper wrapper = new DocumentationObjectWrapper();
+        RestDocumentation.RestApi.Resource.Method get =
+                SampleDocs.getMethod(SampleDocs.newDocs(), "/widgets/{id}", "GET");
+        TemplateHashModel method = (TemplateHashModel) wrapper.wrap(get);
+        AssertJUnit.assertEquals("GET", ((TemplateScalarModel) method.get("requestMethod")).getAsString());
+        AssertJUnit.assertNull(method.get("requestSchema"));
+        TemplateHashModel body = (TemplateHashModel) method.get("responseBody");
+        AssertJUnit.assertEquals("object", ((TemplateScalarModel) body.get("kind")).getAsString());
+
+        // properties that the wrapper doesn't know are looked up as bean properties
+        TemplateHashModel type = (TemplateHashModel) body.get("class");
+        AssertJUnit.assertEquals(JsonObject.class.getName(), ((TemplateScalarModel) type.get("name")).getAsString());
+        AssertJUnit.assertSame(get, ((AdapterTemplateModel) method).getAdaptedObject(Object.class));
+    }
+}
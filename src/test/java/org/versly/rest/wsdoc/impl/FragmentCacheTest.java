@@ -0,0 +1,49 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateMethodModel;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class FragmentCacheTest {
+
+    @Test
+    public void rendersEachFragmentOnce() throws Exception {
+        JsonType widget = SampleDocs.getMethod(SampleDocs.newDocs(), "/widgets/{id}", "GET").getResponseBody();
+        final int[] renders = { 0 };
+        Map<String, Object> root = new HashMap<String, Object>();
+        root.put("fragments", new FragmentCache());
+        root.put("types", Arrays.asList(widget, new JsonPrimitive("int"), widget));
+        root.put("render", (TemplateMethodModel) arguments -> ++renders[0]);
+        Template template = new Template("fragments", new StringReader(
+                "<#list types as type><@fragments type=type>${render()}</@fragments></#list>"), new Configuration());
+        StringWriter out = new StringWriter();
+        template.process(root, out);
+        AssertJUnit.assertEquals("121", out.toString());
+        AssertJUnit.assertEquals(2, renders[0]);
+    }
+}
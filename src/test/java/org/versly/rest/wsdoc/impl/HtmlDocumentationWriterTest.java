@@ -0,0 +1,61 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.StringWriter;
+
+public class HtmlDocumentationWriterTest {
+
+    @Test
+    public void linksToNamedTypes() throws Exception {
+        RestDocumentation docs = new RestDocumentation();
+        RestDocumentation.RestApi api = docs.getRestApi("orders");
+        RestDocumentation.RestApi.Resource resource = api.getResourceDocumentation("/orders");
+        resource.newMethodDocumentation("GET").setResponseBody(new JsonArray(SampleDocs.newOrder()));
+        resource.newMethodDocumentation("POST").setRequestBody(SampleDocs.newOrder());
+        docs.postProcess();
+        StringWriter out = new StringWriter();
+        new HtmlDocumentationWriter(out).write(api);
+
+        // each type is defined once, and linked to from its uses
+        String html = out.toString();
+        AssertJUnit.assertEquals(1, html.split("<a id=\"type-com.example.Order\"/>", -1).length - 1);
+        AssertJUnit.assertEquals(2, html.split("href=\"#type-com.example.Order\"", -1).length - 1);
+        AssertJUnit.assertEquals(1, html.split("href=\"#type-com.example.Address\"", -1).length - 1);
+    }
+
+    @Test
+    public void escapesTypeNames() throws Exception {
+        RestDocumentation docs = new RestDocumentation();
+        RestDocumentation.RestApi api = docs.getRestApi("pages");
+        JsonObject page = new JsonObject();
+        page.setTypeName("com.example.Page<com.example.Order>");
+        page.addField("items", new JsonArray(SampleDocs.newOrder()));
+        api.getResourceDocumentation("/pages").newMethodDocumentation("GET").setResponseBody(page);
+        docs.postProcess();
+        StringWriter out = new StringWriter();
+        new HtmlDocumentationWriter(out).write(api);
+
+        String html = out.toString();
+        AssertJUnit.assertTrue(html.contains("href=\"#type-com.example.Page&lt;com.example.Order&gt;\""));
+        AssertJUnit.assertFalse(html.contains("Page<com"));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class IntermediateFormatTest {
+
+    @Test
+    public void roundTripsBinaryFormat() throws Exception {
+        RestDocumentation docs = SampleDocs.readDocs(SampleDocs.toBinary(SampleDocs.newDocs()));
+        SampleDocs.assertDocs(docs);
+        AssertJUnit.assertEquals(ProcessingLevel.TYPES, docs.getProcessingLevel());
+
+        // types shared in the original model are still shared after reading
+        RestDocumentation.RestApi.Resource.Method get = SampleDocs.getMethod(docs, "/widgets/{id}", "GET");
+        RestDocumentation.RestApi.Resource.Method put = SampleDocs.getMethod(docs, "/widgets/{id}", "PUT");
+        AssertJUnit.assertSame(get.getResponseBody(), put.getRequestBody());
+    }
+
+    @Test
+    public void writesSharedTypesOnce() throws Exception {
+        RestDocumentation shared = SampleDocs.newDocs();
+        RestDocumentation.RestApi.Resource resource = shared.getApis().iterator().next()
+                .getResourceDocumentation("/widgets/{id}");
+        resource.newMethodDocumentation("POST").setRequestBody(
+                resource.newMethodDocumentation("GET").getResponseBody());
+
+        RestDocumentation copied = SampleDocs.newDocs();
+        copied.getApis().iterator().next().getResourceDocumentation("/widgets/{id}")
+                .newMethodDocumentation("POST").setRequestBody(
+                        SampleDocs.getMethod(SampleDocs.newDocs(), "/widgets/{id}", "GET").getResponseBody());
+
+        AssertJUnit.assertTrue("a shared type should be smaller than an equal copy",
+                SampleDocs.toBinary(shared).length < SampleDocs.toBinary(copied).length);
+    }
+
+    @Test
+    public void readsJavaSerializedFiles() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bytes);
+        oos.writeObject(SampleDocs.newDocs());
+        oos.close();
+        SampleDocs.assertDocs(SampleDocs.readDocs(bytes.toByteArray()));
+    }
+
+    /**
+     * legacy-widgets.ser is the sample model serialized while the model classes were inner classes, with the
+     * URL fields in maps and the scopes in hash sets.
+     */
+    @Test
+    public void readsJavaSerializedFilesFromOlderVersions() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(getClass().getResource("legacy-widgets.ser").toURI()));
+        RestDocumentation docs = SampleDocs.readDocs(bytes);
+        SampleDocs.assertDocs(docs);
+        RestDocumentation.RestApi.Resource.Method get = SampleDocs.getMethod(docs, "/widgets/{id}", "GET");
+        // the method's link to its resource, which the old stream left implicit, is restored
+        AssertJUnit.assertEquals("/widgets/{id}_GET_verbose", get.getKey());
+        AssertJUnit.assertTrue(get.getDocScopes() instanceof StringSet);
+    }
+
+    @Test
+    public void roundTripsJsonFormats() throws Exception {
+        for (IntermediateFormat format : new IntermediateFormat[] { IntermediateFormat.JSON, IntermediateFormat.SMILE }) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            SampleDocs.newDocs().toStream(bytes, format);
+            RestDocumentation docs = SampleDocs.readDocs(bytes.toByteArray());
+            SampleDocs.assertDocs(docs);
+            AssertJUnit.assertEquals(ProcessingLevel.TYPES, docs.getProcessingLevel());
+            AssertJUnit.assertSame(SampleDocs.getMethod(docs, "/widgets/{id}", "GET").getResponseBody(),
+                    SampleDocs.getMethod(docs, "/widgets/{id}", "PUT").getRequestBody());
+        }
+    }
+
+    @Test
+    public void roundTripsCompressedFormat() throws Exception {
+        byte[] compressed = SampleDocs.toBinary(SampleDocs.newDocs(), true);
+        AssertJUnit.assertTrue(RestDocumentationReader.isCompressed(compressed, compressed.length));
+        AssertJUnit.assertFalse(RestDocumentationReader.isCompressed(SampleDocs.toBinary(SampleDocs.newDocs()), 16));
+        SampleDocs.assertDocs(SampleDocs.readDocs(compressed));
+        SampleDocs.assertDocs(MappedRestDocumentationReader.read(compressed, null, (String) null));
+
+        // enough resources for several compressed blocks
+        RestDocumentation large = SampleDocs.newDocs();
+        RestDocumentation.RestApi api = large.getApis().iterator().next();
+        for (int i = 0; i < 2000; i++) {
+            api.getResourceDocumentation("/widgets/{id}/parts/" + i).newMethodDocumentation("GET")
+                    .setCommentText("Returns part " + i + " of the widget with the given id.");
+        }
+        byte[] uncompressed = SampleDocs.toBinary(large);
+        compressed = SampleDocs.toBinary(large, true);
+        AssertJUnit.assertTrue(uncompressed.length > 2 * (1 << 16));
+        AssertJUnit.assertTrue("compression should shrink the file", compressed.length * 4 < uncompressed.length);
+
+        File file = File.createTempFile("wsdoc", ".ser");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(compressed);
+            out.close();
+            for (RestDocumentation docs : new RestDocumentation[] {
+                    SampleDocs.readDocs(compressed), MappedRestDocumentationReader.read(file) }) {
+                SampleDocs.assertDocs(docs);
+                RestDocumentation.RestApi.Resource part = docs.getApis().iterator().next()
+                        .getResourceDocumentation("/widgets/{id}/parts/1999");
+                AssertJUnit.assertEquals("Returns part 1999 of the widget with the given id.",
+                        part.getRequestMethodDocs().iterator().next().getCommentText());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void rejectsTruncatedCompressedFiles() throws Exception {
+        byte[] compressed = SampleDocs.toBinary(SampleDocs.newDocs(), true);
+        SampleDocs.readDocs(Arrays.copyOf(compressed, compressed.length / 2));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void rejectsNewerFormatVersions() throws Exception {
+        byte[] bytes = SampleDocs.toBinary(SampleDocs.newDocs());
+        bytes[4] = 99;
+        SampleDocs.readDocs(bytes);
+    }
+}
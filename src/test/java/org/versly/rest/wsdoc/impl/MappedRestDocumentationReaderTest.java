@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class MappedRestDocumentationReaderTest {
+
+    @Test
+    public void readsMappedFiles() throws Exception {
+        File file = File.createTempFile("wsdoc", ".ser");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            SampleDocs.newDocs().toStream(out);
+            out.close();
+            RestDocumentation docs = MappedRestDocumentationReader.read(file);
+            SampleDocs.assertDocs(docs);
+            AssertJUnit.assertEquals(ProcessingLevel.TYPES, docs.getProcessingLevel());
+            AssertJUnit.assertSame(SampleDocs.getMethod(docs, "/widgets/{id}", "GET").getResponseBody(),
+                    SampleDocs.getMethod(docs, "/widgets/{id}", "PUT").getRequestBody());
+
+            // files without an index are read in full
+            out = new FileOutputStream(file);
+            SampleDocs.newDocs().toStream(out, IntermediateFormat.JSON);
+            out.close();
+            SampleDocs.assertDocs(MappedRestDocumentationReader.read(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void readsSelectedSections() throws Exception {
+        RestDocumentation original = SampleDocs.newDocs();
+        original.getRestApi("gadgets").getResourceDocumentation("/gadgets").newMethodDocumentation("GET")
+                .setDocScopes(new HashSet<String>(Arrays.asList("private")));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.toStream(bytes);
+
+        RestDocumentation docs = MappedRestDocumentationReader.read(bytes.toByteArray(), null, "public");
+        AssertJUnit.assertEquals(2, docs.getApis().size());
+        RestDocumentation.RestApi widgets = docs.getRestApi("widgets");
+        AssertJUnit.assertEquals(1, widgets.getResources().size());
+        RestDocumentation.RestApi.Resource resource = widgets.getResources().iterator().next();
+        AssertJUnit.assertEquals("/widgets/{id}", resource.getPath());
+        AssertJUnit.assertEquals(2, resource.getRequestMethodDocs().size());
+        AssertJUnit.assertEquals("/widgets", resource.getParent().getPath());
+        AssertJUnit.assertTrue(docs.getRestApi("gadgets").getResources().isEmpty());
+
+        docs = MappedRestDocumentationReader.read(bytes.toByteArray(), Arrays.asList("gadgets"), "all");
+        AssertJUnit.assertEquals(1, docs.getApis().size());
+        AssertJUnit.assertEquals("/gadgets", docs.getRestApi("gadgets").getResources().iterator().next().getPath());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class ModelJsonDocumentationWriterTest {
+
+    @Test
+    public void writesTheModelAsJson() throws Exception {
+        RestDocumentation docs = SampleDocs.newDocs();
+        RestDocumentation.RestApi api = docs.getApis().iterator().next();
+        api.getResourceDocumentation("/widgets/{id}/orders").newMethodDocumentation("GET")
+                .setResponseBody(new JsonArray(SampleDocs.newOrder()));
+        SampleDocs.getMethod(docs, "/widgets/{id}", "GET").setAuthScopes(Arrays.asList("write", "read"));
+        docs.postProcess();
+        StringWriter json = new StringWriter();
+        OutputFormat.MODEL_JSON.write(api, json);
+        JsonNode model = new ObjectMapper().readTree(json.toString());
+
+        AssertJUnit.assertEquals(1, model.path("wsdocModel").asInt());
+        AssertJUnit.assertEquals("widgets", model.path("api").path("identifier").asText());
+        AssertJUnit.assertEquals("paged", model.path("api").path("traits").path(0).asText());
+        AssertJUnit.assertEquals(Arrays.asList("com.example.Address", "com.example.Order"),
+                toList(model.path("types").fieldNames()));
+        AssertJUnit.assertEquals(Arrays.asList("/widgets", "/widgets/{id}", "/widgets/{id}/orders"),
+                toList(model.path("resources").findValuesAsText("path").iterator()));
+
+        JsonNode resource = model.path("resources").path(1);
+        AssertJUnit.assertEquals("/widgets", resource.path("parent").asText());
+        JsonNode get = resource.path("methods").path(0);
+        AssertJUnit.assertEquals("GET", get.path("method").asText());
+        AssertJUnit.assertEquals("PUT", resource.path("methods").path(1).path("method").asText());
+        AssertJUnit.assertEquals("read", get.path("authScopes").path(0).asText());
+        AssertJUnit.assertEquals("write", get.path("authScopes").path(1).asText());
+        AssertJUnit.assertEquals(0, get.path("traits").size());
+        AssertJUnit.assertEquals("the widget id", get.path("urlSubstitutions").path(0).path("description").asText());
+        JsonNode fields = get.path("responseBody").path("fields");
+        AssertJUnit.assertEquals("the widget's name", fields.path(0).path("comment").asText());
+        AssertJUnit.assertEquals("recursive", fields.path(2).path("type").path("kind").asText());
+        AssertJUnit.assertEquals("GREEN",
+                fields.path(3).path("type").path("value").path("restrictions").path(1).asText());
+        AssertJUnit.assertTrue(resource.path("methods").path(1).path("multipart").asBoolean());
+        AssertJUnit.assertEquals("{\"type\":\"object\"}",
+                resource.path("methods").path(1).path("requestSchema").asText());
+
+        // named types are referred to from the methods
+        JsonNode orders = model.path("resources").path(2).path("methods").path(0).path("responseBody");
+        AssertJUnit.assertEquals("ref", orders.path("element").path("kind").asText());
+        AssertJUnit.assertEquals("com.example.Order", orders.path("element").path("name").asText());
+        AssertJUnit.assertEquals("ref", model.path("types").path("com.example.Order").path("fields").path(1)
+                .path("type").path("kind").asText());
+
+        // the output doesn't depend on the order the resources were added in
+        RestDocumentation reordered = new RestDocumentation();
+        RestDocumentation.RestApi reorderedApi = reordered.getRestApi("widgets");
+        reorderedApi.getResourceDocumentation("/widgets/{id}/orders");
+        reorderedApi.merge(api);
+        reordered.postProcess();
+        StringWriter reorderedJson = new StringWriter();
+        OutputFormat.MODEL_JSON.write(reorderedApi, reorderedJson);
+        AssertJUnit.assertEquals(json.toString(), reorderedJson.toString());
+    }
+
+    private static List<String> toList(Iterator<String> values) {
+        List<String> list = new ArrayList<String>();
+        while (values.hasNext())
+            list.add(values.next());
+        return list;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class OpenApiDocumentationWriterTest {
+
+    @Test
+    public void writesOpenApi() throws Exception {
+        RestDocumentation docs = SampleDocs.newDocs();
+        RestDocumentation.RestApi api = docs.getApis().iterator().next();
+        RestDocumentation.RestApi.Resource orders = api.getResourceDocumentation("/widgets/{id}/orders");
+        orders.newMethodDocumentation("GET").setResponseBody(new JsonArray(SampleDocs.newOrder()));
+        docs.postProcess();
+        StringWriter json = new StringWriter();
+        OutputFormat.OPENAPI.write(api, json);
+        StringWriter yaml = new StringWriter();
+        OutputFormat.OPENAPI_YAML.write(api, yaml);
+        JsonNode openApi = new ObjectMapper().readTree(json.toString());
+        AssertJUnit.assertEquals(openApi, new ObjectMapper(new YAMLFactory()).readTree(yaml.toString()));
+        // a bare 200 would be read back as a number
+        AssertJUnit.assertTrue(yaml.toString(), yaml.toString().contains("\"200\":"));
+        AssertJUnit.assertFalse(yaml.toString(), yaml.toString().contains(" 200:"));
+
+        AssertJUnit.assertEquals("Widgets", openApi.path("info").path("title").asText());
+        AssertJUnit.assertEquals("/widgets", openApi.path("servers").path(0).path("url").asText());
+        // the paths are relative to the server URL
+        AssertJUnit.assertFalse(openApi.path("paths").has("/widgets/{id}"));
+        JsonNode get = openApi.path("paths").path("/{id}").path("get");
+        AssertJUnit.assertEquals("Returns a widget.", get.path("description").asText());
+        AssertJUnit.assertEquals("id", get.path("parameters").path(0).path("name").asText());
+        AssertJUnit.assertEquals("path", get.path("parameters").path(0).path("in").asText());
+        AssertJUnit.assertEquals("integer", get.path("parameters").path(0).path("schema").path("type").asText());
+        AssertJUnit.assertEquals("query", get.path("parameters").path(1).path("in").asText());
+        JsonNode widget = get.path("responses").path("200").path("content").path("application/json").path("schema");
+        AssertJUnit.assertEquals("the widget's name",
+                widget.path("properties").path("name").path("description").asText());
+        AssertJUnit.assertEquals(Arrays.asList("RED", "GREEN"), Arrays.asList(
+                widget.path("properties").path("colors").path("additionalProperties").path("enum").path(0).asText(),
+                widget.path("properties").path("colors").path("additionalProperties").path("enum").path(1).asText()));
+        AssertJUnit.assertEquals("multipart/form-data", openApi.path("paths").path("/{id}").path("put")
+                .path("requestBody").path("content").fieldNames().next());
+
+        // named types are defined once, and referred to from the operations and other types
+        JsonNode schemas = openApi.path("components").path("schemas");
+        AssertJUnit.assertEquals("#/components/schemas/com.example.Order", openApi.path("paths")
+                .path("/{id}/orders").path("get").path("responses").path("200").path("content")
+                .path("application/json").path("schema").path("items").path("$ref").asText());
+        AssertJUnit.assertEquals("#/components/schemas/com.example.Address",
+                schemas.path("com.example.Order").path("properties").path("shipTo").path("$ref").asText());
+        AssertJUnit.assertEquals("int64",
+                schemas.path("com.example.Order").path("properties").path("id").path("format").asText());
+    }
+
+    @Test
+    public void writesPathsRelativeToTheMount() {
+        AssertJUnit.assertEquals("/", OpenApiDocumentationWriter.getRelativePath("/widgets", "/widgets"));
+        AssertJUnit.assertEquals("/{id}", OpenApiDocumentationWriter.getRelativePath("/widgets/{id}", "/widgets"));
+        AssertJUnit.assertEquals("/{id}", OpenApiDocumentationWriter.getRelativePath("/widgets/{id}", "/widgets/"));
+        AssertJUnit.assertEquals("/widgetsets",
+                OpenApiDocumentationWriter.getRelativePath("/widgetsets", "/widgets"));
+        AssertJUnit.assertEquals("/widgets/{id}", OpenApiDocumentationWriter.getRelativePath("/widgets/{id}", null));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RamlDocumentationWriterTest {
+
+    @Test
+    public void writesRamlThatParsesWhateverTheComments() throws Exception {
+        RestDocumentation docs = SampleDocs.newDocs();
+        RestDocumentation.RestApi api = docs.getApis().iterator().next();
+        api.setApiTitle("Widgets: the API");
+        SampleDocs.getMethod(docs, "/widgets/{id}", "GET")
+                .setCommentText("Returns a widget: any widget.\n- even #1\n @param id");
+        StringWriter out = new StringWriter();
+        new RamlDocumentationWriter(out).write(api);
+
+        Map<?, ?> raml = (Map<?, ?>) new Yaml().load(out.toString());
+        AssertJUnit.assertEquals("Widgets: the API", raml.get("title"));
+        Map<?, ?> get = (Map<?, ?>) ((Map<?, ?>) ((Map<?, ?>) raml.get("/widgets")).get("/{id}")).get("get");
+        AssertJUnit.assertEquals("Returns a widget: any widget.\n- even #1", get.get("description"));
+    }
+
+    @Test
+    public void refersToSchemasByName() throws Exception {
+        RestDocumentation docs = new RestDocumentation();
+        RestDocumentation.RestApi api = docs.getRestApi("orders");
+        RestDocumentation.RestApi.Resource resource = api.getResourceDocumentation("/orders");
+        RestDocumentation.RestApi.Resource.Method post = resource.newMethodDocumentation("POST");
+        post.setRequestBody(SampleDocs.newOrder());
+        post.setRequestSchema("{\"type\":\"object\"}");
+        post.setResponseBody(SampleDocs.newOrder());
+        post.setResponseSchema("{\"type\":\"object\"}");
+        RestDocumentation.RestApi.Resource.Method put = resource.newMethodDocumentation("PUT");
+        put.setRequestBody(new JsonPrimitive(String.class.getName()));
+        put.setRequestSchema("{\"type\":\"string\"}");
+        docs.postProcess();
+        StringWriter out = new StringWriter();
+        new RamlDocumentationWriter(out).write(api);
+
+        Map<?, ?> raml = (Map<?, ?>) new Yaml().load(out.toString());
+        Map<String, Object> schemas = new HashMap<String, Object>();
+        for (Object schema : (List<?>) raml.get("schemas"))
+            schemas.putAll((Map<String, ?>) schema);
+        AssertJUnit.assertEquals(2, schemas.size());
+        AssertJUnit.assertEquals("{\"type\":\"object\"}", schemas.get("Order"));
+        AssertJUnit.assertEquals("{\"type\":\"string\"}", schemas.get("schema"));
+
+        Map<?, ?> orders = (Map<?, ?>) raml.get("/orders");
+        AssertJUnit.assertEquals("Order", getSchema((Map<?, ?>) orders.get("post")));
+        AssertJUnit.assertEquals("Order", getSchema(
+                (Map<?, ?>) ((Map<?, ?>) ((Map<?, ?>) orders.get("post")).get("responses")).get(200)));
+        AssertJUnit.assertEquals("schema", getSchema((Map<?, ?>) orders.get("put")));
+    }
+
+    private static Object getSchema(Map<?, ?> bodyParent) {
+        Map<?, ?> body = (Map<?, ?>) bodyParent.get("body");
+        return ((Map<?, ?>) body.get("application/json")).get("schema");
+    }
+}
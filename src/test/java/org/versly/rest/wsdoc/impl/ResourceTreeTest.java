@@ -0,0 +1,68 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+public class ResourceTreeTest {
+
+    @Test
+    public void linksResourcesAcrossMergedApis() throws Exception {
+        RestDocumentation.RestApi api = new RestDocumentation.RestApi("widgets");
+        api.getResourceDocumentation("/widgets");
+        api.getResourceDocumentation("/widgets/{id}/parts");
+        api.getResourceDocumentation("/widgetsets");
+        RestDocumentation.RestApi other = new RestDocumentation.RestApi("widgets");
+        other.getResourceDocumentation("/widgets/{id}");
+        api.merge(other);
+
+        RestDocumentation.RestApi.Resource widgets = api.getResourceDocumentation("/widgets");
+        RestDocumentation.RestApi.Resource widget = api.getResourceDocumentation("/widgets/{id}");
+        AssertJUnit.assertSame(widget, api.getResourceDocumentation("/widgets/{id}/parts").getParent());
+        AssertJUnit.assertSame(widgets, widget.getParent());
+        AssertJUnit.assertEquals(Arrays.asList(widget), new ArrayList<RestDocumentation.RestApi.Resource>(
+                widgets.getChildren()));
+        AssertJUnit.assertNull(api.getResourceDocumentation("/widgetsets").getParent());
+        AssertJUnit.assertEquals("", api.getCommonResourcePath());
+        AssertJUnit.assertEquals("/widgets",
+                api.filter(Arrays.asList(Pattern.compile("/widgetsets")), "all").getCommonResourcePath());
+    }
+
+    @Test
+    public void detachesResourcesReplacedByAMerge() throws Exception {
+        RestDocumentation.RestApi api = new RestDocumentation.RestApi("widgets");
+        api.getResourceDocumentation("/widgets");
+        api.getResourceDocumentation("/widgets/{id}");
+        api.linkResources();
+        RestDocumentation.RestApi other = new RestDocumentation.RestApi("widgets");
+        other.getResourceDocumentation("/widgets/{id}");
+        other.linkResources();
+        api.merge(other);
+
+        RestDocumentation.RestApi.Resource widgets = api.getResourceDocumentation("/widgets");
+        RestDocumentation.RestApi.Resource widget = api.getResourceDocumentation("/widgets/{id}");
+        AssertJUnit.assertEquals(Arrays.asList(widget), new ArrayList<RestDocumentation.RestApi.Resource>(
+                widgets.getChildren()));
+        AssertJUnit.assertSame(widgets, widget.getParent());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.versly.rest.wsdoc.DocumentationRestApi;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class RestApiViewTest {
+
+    @Test
+    public void filtersWithoutModifyingTheModel() throws Exception {
+        RestDocumentation docs = SampleDocs.readDocs(SampleDocs.toBinary(SampleDocs.newDocs()));
+        RestDocumentation.RestApi api = docs.getApis().iterator().next();
+        for (int i = 0; i < 2; i++) {
+            RestDocumentation.RestApi scoped = api.filter(null, "public");
+            AssertJUnit.assertEquals(1, scoped.getResources().size());
+            RestDocumentation.RestApi.Resource resource = scoped.getResources().iterator().next();
+            AssertJUnit.assertEquals(1, resource.getRequestMethodDocs().size());
+            AssertJUnit.assertEquals("/widgets", resource.getParent().getPath());
+            AssertJUnit.assertSame(resource, resource.getParent().getChildren().iterator().next());
+            scoped.setMount("/widgets/{id}");
+            AssertJUnit.assertEquals("/widgets/{id}", scoped.getMount());
+
+            RestDocumentation.RestApi excluded = api.filter(Arrays.asList(Pattern.compile(".*\\{id\\}")), "all");
+            AssertJUnit.assertEquals(1, excluded.getResources().size());
+            AssertJUnit.assertEquals("/widgets", excluded.getResources().iterator().next().getPath());
+        }
+        SampleDocs.assertDocs(docs);
+        AssertJUnit.assertEquals("/widgets", api.getMount());
+    }
+
+    @Test
+    public void treatsABlankMountAsNone() throws Exception {
+        // an intermediate file whose mount was left to the assembler, which was given none
+        RestDocumentation.RestApi api = new RestDocumentation().getRestApi("blank");
+        api.setMount(DocumentationRestApi.MOUNT_TEMPLATE);
+        Utils.addTemplateValue(DocumentationRestApi.MOUNT_TEMPLATE, null);
+        api.readResolve();
+        AssertJUnit.assertEquals("", api.getMount());
+        AssertJUnit.assertNull(api.filter(null, "all").getMount());
+    }
+
+    @Test
+    public void precomputesDerivedValues() throws Exception {
+        RestDocumentation docs = SampleDocs.newDocs();
+        RestDocumentation.RestApi.Resource resource = docs.getApis().iterator().next()
+                .getResourceDocumentation("/widgets/{id}");
+        RestDocumentation.RestApi.Resource.Method get = SampleDocs.getMethod(docs, "/widgets/{id}", "GET");
+        String key = get.getKey();
+        Map<String, RestDocumentation.RestApi.Resource.UrlFields.UrlField> substitutions =
+                resource.getResourceUrlSubstitutions().getFields();
+
+        RestDocumentation.RestApi scoped = docs.getApis().iterator().next().filter(null, "all");
+        scoped.precomputeDerivedValues();
+        RestDocumentation.RestApi.Resource view = scoped.getResourceDocumentation("/widgets/{id}");
+        AssertJUnit.assertEquals("/widgets/{id}_GET_verbose", key);
+        AssertJUnit.assertEquals(key, get.getKey());
+        AssertJUnit.assertEquals(substitutions, view.getResourceUrlSubstitutions().getFields());
+        AssertJUnit.assertSame(view.getResourceUrlSubstitutions(), view.getResourceUrlSubstitutions());
+        AssertJUnit.assertEquals(Arrays.asList("GET", "PUT"), Arrays.asList(
+                view.getSortedRequestMethodDocs().get(0).getRequestMethod(),
+                view.getSortedRequestMethodDocs().get(1).getRequestMethod()));
+        try {
+            view.getResourceUrlSubstitutions().addField("other", null, null);
+            AssertJUnit.fail("expected precomputed URL fields to be read-only");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void rejectsChangesToFilteredApis() throws Exception {
+        SampleDocs.newDocs().getApis().iterator().next().filter(null, "all").getResources().clear();
+    }
+}
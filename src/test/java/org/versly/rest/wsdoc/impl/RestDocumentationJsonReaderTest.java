@@ -0,0 +1,50 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+
+public class RestDocumentationJsonReaderTest {
+
+    @Test
+    public void readsJsonIncrementally() throws Exception {
+        RestDocumentation original = SampleDocs.newDocs();
+        original.getRestApi("gadgets").getResourceDocumentation("/gadgets").newMethodDocumentation("GET");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.toStream(bytes, IntermediateFormat.JSON);
+
+        RestDocumentationJsonReader reader = new RestDocumentationJsonReader(
+                IntermediateFormat.JSON.getJsonFactory().createParser(bytes.toByteArray()));
+        RestDocumentation.RestApi widgets = reader.nextApi();
+        AssertJUnit.assertEquals("Widgets", widgets.getApiTitle());
+        AssertJUnit.assertEquals("/widgets", reader.nextResource().getPath());
+
+        // skip the rest of the widgets API
+        RestDocumentation.RestApi gadgets = reader.nextApi();
+        AssertJUnit.assertEquals("gadgets", gadgets.getIdentifier());
+        AssertJUnit.assertEquals(1, widgets.getResources().size());
+        AssertJUnit.assertEquals("/gadgets", reader.nextResource().getPath());
+        AssertJUnit.assertNull(reader.nextResource());
+        AssertJUnit.assertNull(reader.nextApi());
+        AssertJUnit.assertEquals(2, reader.getDocumentation().getApis().size());
+        reader.close();
+    }
+}
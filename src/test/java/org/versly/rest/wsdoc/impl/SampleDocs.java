@@ -0,0 +1,141 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+
+/**
+ * Small documentation models shared by the tests, and the checks that a model read back is the one written.
+ */
+public class SampleDocs {
+    private SampleDocs() {
+    }
+
+    public static RestDocumentation newDocs() {
+        RestDocumentation docs = new RestDocumentation();
+        docs.setProcessingLevel(ProcessingLevel.TYPES);
+        RestDocumentation.RestApi api = docs.getRestApi("widgets");
+        api.setMount("/widgets");
+        api.setApiTitle("Widgets");
+        api.setTraits(new HashSet<String>(Arrays.asList("paged")));
+
+        JsonObject widget = new JsonObject();
+        widget.addField("name", new JsonPrimitive(String.class.getName())).setCommentText("the widget's name");
+        widget.addField("tags", new JsonArray(new JsonPrimitive(String.class.getName())));
+        widget.addField("owner", new JsonRecursiveObject("Widget"));
+        JsonPrimitive color = new JsonPrimitive("Color");
+        color.setRestrictions(Arrays.asList("RED", "GREEN"));
+        widget.addField("colors", new JsonDict(new JsonPrimitive(String.class.getName()), color));
+
+        api.getResourceDocumentation("/widgets");
+        RestDocumentation.RestApi.Resource resource = api.getResourceDocumentation("/widgets/{id}");
+        RestDocumentation.RestApi.Resource.Method get = resource.newMethodDocumentation("GET");
+        get.setResponseBody(widget);
+        get.setCommentText("Returns a widget.");
+        get.setDocScopes(new HashSet<String>(Arrays.asList("public")));
+        get.getUrlSubstitutions().addField("id", new JsonPrimitive(int.class.getName()), "the widget id");
+        get.getUrlParameters().addField("verbose", new JsonPrimitive(boolean.class.getName()), null);
+        RestDocumentation.RestApi.Resource.Method put = resource.newMethodDocumentation("PUT");
+        put.setRequestBody(widget);
+        put.setMultipartRequest(true);
+        put.setRequestSchema("{\"type\":\"object\"}");
+        docs.postProcess();
+        return docs;
+    }
+
+    public static JsonObject newOrder() {
+        JsonObject address = new JsonObject();
+        address.setTypeName("com.example.Address");
+        address.addField("street", new JsonPrimitive(String.class.getName()));
+        JsonObject order = new JsonObject();
+        order.setTypeName("com.example.Order");
+        order.addField("id", new JsonPrimitive(long.class.getName()));
+        order.addField("shipTo", address);
+        return order;
+    }
+
+    public static void assertDocs(RestDocumentation docs) {
+        AssertJUnit.assertEquals(1, docs.getApis().size());
+        RestDocumentation.RestApi api = docs.getApis().iterator().next();
+        AssertJUnit.assertEquals("widgets", api.getIdentifier());
+        AssertJUnit.assertEquals("/widgets", api.getMount());
+        AssertJUnit.assertEquals("Widgets", api.getApiTitle());
+        AssertJUnit.assertNull(api.getApiVersion());
+        AssertJUnit.assertEquals(new HashSet<String>(Arrays.asList("paged")), api.getTraits());
+
+        RestDocumentation.RestApi.Resource resource = api.getResourceDocumentation("/widgets/{id}");
+        AssertJUnit.assertEquals("/widgets", resource.getParent().getPath());
+        AssertJUnit.assertEquals(1, resource.getParent().getChildren().size());
+
+        RestDocumentation.RestApi.Resource.Method get = getMethod(docs, "/widgets/{id}", "GET");
+        AssertJUnit.assertEquals("Returns a widget.", get.getCommentText());
+        AssertJUnit.assertEquals(new HashSet<String>(Arrays.asList("public")), get.getDocScopes());
+        AssertJUnit.assertEquals("the widget id", get.getUrlSubstitutions().getFields().get("id").getFieldDescription());
+        AssertJUnit.assertEquals("integer",
+                ((JsonPrimitive) get.getUrlSubstitutions().getFields().get("id").getFieldType()).getTypeName());
+        AssertJUnit.assertNull(get.getUrlParameters().getFields().get("verbose").getFieldDescription());
+        AssertJUnit.assertNull(get.getRequestBody());
+
+        Iterator<JsonObject.JsonField> fields = ((JsonObject) get.getResponseBody()).getFields().iterator();
+        JsonObject.JsonField name = fields.next();
+        AssertJUnit.assertEquals("name", name.getFieldName());
+        AssertJUnit.assertEquals("the widget's name", name.getCommentText());
+        AssertJUnit.assertEquals("string", ((JsonPrimitive) name.getFieldType()).getTypeName());
+        AssertJUnit.assertTrue(((JsonArray) fields.next().getFieldType()).getElementType() instanceof JsonPrimitive);
+        AssertJUnit.assertEquals("Widget", ((JsonRecursiveObject) fields.next().getFieldType()).getRecursedObjectTypeName());
+        JsonDict colors = (JsonDict) fields.next().getFieldType();
+        AssertJUnit.assertEquals(Arrays.asList("RED", "GREEN"), ((JsonPrimitive) colors.getValueType()).getRestrictions());
+        AssertJUnit.assertFalse(fields.hasNext());
+
+        RestDocumentation.RestApi.Resource.Method put = getMethod(docs, "/widgets/{id}", "PUT");
+        AssertJUnit.assertTrue(put.isMultipartRequest());
+        AssertJUnit.assertEquals("{\"type\":\"object\"}", put.getRequestSchema());
+        AssertJUnit.assertNull(put.getDocScopes());
+    }
+
+    public static RestDocumentation.RestApi.Resource.Method getMethod(
+            RestDocumentation docs, String path, String meth) {
+        for (RestDocumentation.RestApi.Resource.Method method
+                : docs.getApis().iterator().next().getResourceDocumentation(path).getRequestMethodDocs()) {
+            if (method.getRequestMethod().equals(meth))
+                return method;
+        }
+        throw new AssertionError("no " + meth + " " + path);
+    }
+
+    public static byte[] toBinary(RestDocumentation docs) throws IOException {
+        return toBinary(docs, false);
+    }
+
+    public static byte[] toBinary(RestDocumentation docs, boolean compressed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        docs.toStream(bytes, IntermediateFormat.BINARY, compressed);
+        return bytes.toByteArray();
+    }
+
+    public static RestDocumentation readDocs(byte[] bytes) throws Exception {
+        return RestDocumentation.fromStream(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class SchemaCatalogTest {
+
+    @Test
+    public void namesEachDistinctSchemaOnce() throws Exception {
+        RestDocumentation docs = new RestDocumentation();
+        RestDocumentation.RestApi api = docs.getRestApi("orders");
+        RestDocumentation.RestApi.Resource resource = api.getResourceDocumentation("/orders");
+        RestDocumentation.RestApi.Resource.Method post = resource.newMethodDocumentation("POST");
+        post.setRequestBody(SampleDocs.newOrder());
+        post.setRequestSchema("{\"type\":\"object\"}");
+        post.setResponseBody(SampleDocs.newOrder());
+        post.setResponseSchema("{\"type\":\"object\"} ");
+        RestDocumentation.RestApi.Resource.Method get = resource.newMethodDocumentation("GET");
+        get.setResponseBody(new JsonArray(SampleDocs.newOrder()));
+        get.setResponseSchema("{\"type\":\"array\"}");
+        RestDocumentation.RestApi.Resource.Method put = resource.newMethodDocumentation("PUT");
+        put.setRequestBody(new JsonPrimitive(String.class.getName()));
+        put.setRequestSchema("{\"type\":\"string\"}");
+        // a different schema for a type whose name is taken
+        RestDocumentation.RestApi.Resource.Method patch = resource.newMethodDocumentation("PATCH");
+        patch.setRequestBody(SampleDocs.newOrder());
+        patch.setRequestSchema("{\"type\":\"object\",\"title\":\"patch\"}");
+        docs.postProcess();
+
+        SchemaCatalog catalog = api.getSchemaCatalog();
+        AssertJUnit.assertEquals(Arrays.asList("Order", "Order2", "OrderArray", "schema"),
+                new ArrayList<String>(catalog.getSchemas().keySet()));
+        AssertJUnit.assertEquals("{\"type\":\"object\"}", catalog.getSchemas().get("Order"));
+        AssertJUnit.assertEquals("Order", catalog.getName(post.getRequestSchema()));
+        AssertJUnit.assertEquals("Order", catalog.getName(post.getResponseSchema()));
+        AssertJUnit.assertEquals("OrderArray", catalog.getName(get.getResponseSchema()));
+        AssertJUnit.assertEquals("schema", catalog.getName(put.getRequestSchema()));
+        AssertJUnit.assertEquals("Order2", catalog.getName(patch.getRequestSchema()));
+        AssertJUnit.assertNull(catalog.getName("{}"));
+    }
+
+    @Test
+    public void namesGenericTypesWithoutTheirTypeArguments() throws Exception {
+        RestDocumentation docs = new RestDocumentation();
+        RestDocumentation.RestApi api = docs.getRestApi("orders");
+        RestDocumentation.RestApi.Resource.Method get = api.getResourceDocumentation("/orders")
+                .newMethodDocumentation("GET");
+        JsonObject page = new JsonObject();
+        page.setTypeName("com.example.Page<com.example.Order>");
+        get.setResponseBody(page);
+        get.setResponseSchema("{\"type\":\"object\",\"title\":\"page\"}");
+        docs.postProcess();
+
+        AssertJUnit.assertEquals("Page", api.getSchemaCatalog().getName(get.getResponseSchema()));
+    }
+}
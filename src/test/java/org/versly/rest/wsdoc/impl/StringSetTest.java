@@ -0,0 +1,61 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class StringSetTest {
+
+    @Test
+    public void dropsDuplicates() {
+        Set<String> set = StringSet.copyOf(Arrays.asList("b", "a", "b", "c", "a"));
+        AssertJUnit.assertEquals(3, set.size());
+        AssertJUnit.assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c")), set);
+        AssertJUnit.assertTrue(set.contains("c"));
+        AssertJUnit.assertFalse(set.contains("d"));
+    }
+
+    @Test
+    public void keepsTheOrderOfTheCopiedCollection() {
+        AssertJUnit.assertEquals(Arrays.asList("b", "a", "c"),
+                new ArrayList<String>(StringSet.copyOf(Arrays.asList("b", "a", "b", "c"))));
+        AssertJUnit.assertEquals(Arrays.asList("z", "y", "x"),
+                new ArrayList<String>(StringSet.copyOf(new LinkedHashSet<String>(Arrays.asList("z", "y", "x")))));
+    }
+
+    @Test
+    public void sharesOneEmptyInstance() {
+        AssertJUnit.assertSame(StringSet.EMPTY, StringSet.copyOf(new HashSet<String>()));
+        AssertJUnit.assertSame(StringSet.EMPTY, StringSet.copyOf(Collections.<String>emptyList()));
+        AssertJUnit.assertNull(StringSet.copyOf(null));
+        Set<String> set = StringSet.copyOf(Arrays.asList("a"));
+        AssertJUnit.assertSame(set, StringSet.copyOf(set));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void isImmutable() {
+        StringSet.copyOf(Arrays.asList("a")).add("b");
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class TypeCatalogTest {
+
+    @Test
+    public void catalogsNamedTypes() throws Exception {
+        RestDocumentation docs = new RestDocumentation();
+        RestDocumentation.RestApi.Resource resource = docs.getRestApi("orders").getResourceDocumentation("/orders");
+        RestDocumentation.RestApi.Resource.Method get = resource.newMethodDocumentation("GET");
+        get.setResponseBody(new JsonArray(SampleDocs.newOrder()));
+        RestDocumentation.RestApi.Resource.Method post = resource.newMethodDocumentation("POST");
+        post.setRequestBody(SampleDocs.newOrder());
+        docs.postProcess();
+
+        // each use of a type name refers to the same object, in memory and once written
+        AssertJUnit.assertSame(((JsonArray) get.getResponseBody()).getElementType(), post.getRequestBody());
+        docs.getRestApi("orders").getTypeCatalog();
+        AssertJUnit.assertNull(get.peekUrlSubstitutions());
+        AssertJUnit.assertNull(get.peekUrlParameters());
+        for (IntermediateFormat format : IntermediateFormat.values()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            docs.toStream(bytes, format);
+            RestDocumentation read = SampleDocs.readDocs(bytes.toByteArray());
+            RestDocumentation.RestApi api = read.getApis().iterator().next();
+            AssertJUnit.assertEquals(Arrays.asList("com.example.Address", "com.example.Order"),
+                    new ArrayList<String>(api.getTypeCatalog().keySet()));
+            AssertJUnit.assertSame(api.getTypeCatalog().get("com.example.Order"),
+                    SampleDocs.getMethod(read, "/orders", "POST").getRequestBody());
+        }
+    }
+}
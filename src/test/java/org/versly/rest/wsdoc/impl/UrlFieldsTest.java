@@ -0,0 +1,43 @@
+/*
+ * Copyright 2011 TaskDock, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.versly.rest.wsdoc.impl;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class UrlFieldsTest {
+
+    @Test
+    public void keepsFieldsInTheOrderAdded() {
+        RestDocumentation.RestApi.Resource.UrlFields fields = new RestDocumentation.RestApi.Resource.UrlFields();
+        fields.addField("b", new JsonPrimitive("string"), null);
+        fields.addField("a", new JsonPrimitive("string"), null);
+        fields.addField("b", new JsonPrimitive("integer"), "replaced");
+        AssertJUnit.assertEquals(Arrays.asList("b", "a"), new ArrayList<String>(fields.getFields().keySet()));
+        AssertJUnit.assertEquals("replaced", fields.getFields().get("b").getFieldDescription());
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void rejectsChangesThroughGetFields() {
+        RestDocumentation.RestApi.Resource.UrlFields fields = new RestDocumentation.RestApi.Resource.UrlFields();
+        fields.getFields().put("id", new RestDocumentation.RestApi.Resource.UrlFields.UrlField(null, null));
+    }
+}